@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+class DatasetSeeder {
+    private static final int BATCH_SIZE = 10_000;
+    private static final int RATINGS = 5;
+    private static final int GENRES = 6;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+
+    DatasetSeeder(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+    }
+
+    void seed(int films, int users, int likes, int friendsPerUser) {
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            seedFilms(films);
+            seedUsers(users);
+            seedLikes(films, users, likes);
+            seedFriends(users, friendsPerUser);
+        } finally {
+            jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    /**
+     * The in-memory indexes were built from the empty database at startup.
+     */
+    static void reloadIndexes(ApplicationContext context) {
+        context.getBean(FilmDbStorage.class).loadIndexes();
+        context.getBean(UserDbStorage.class).loadIndexes();
+    }
+
+    private void seedFilms(int films) {
+        Date releaseDate = Date.valueOf(LocalDate.of(2000, 1, 1));
+        List<Object[]> filmRows = new ArrayList<>();
+        List<Object[]> genreRows = new ArrayList<>();
+        for (int id = 1; id <= films; id++) {
+            filmRows.add(new Object[]{id, "Film " + id, "Description of film " + id, releaseDate,
+                    90 + random.nextInt(60), 1 + random.nextInt(RATINGS)});
+            int firstGenre = 1 + random.nextInt(GENRES);
+            genreRows.add(new Object[]{id, firstGenre});
+            if (random.nextBoolean()) {
+                genreRows.add(new Object[]{id, firstGenre % GENRES + 1});
+            }
+        }
+        batchInsert("INSERT INTO films (id, name, description, release_date, duration, rating_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", filmRows);
+        batchInsert("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genreRows);
+        jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN id RESTART WITH " + (films + 1));
+    }
+
+    private void seedUsers(int users) {
+        Date birthday = Date.valueOf(LocalDate.of(1990, 1, 1));
+        List<Object[]> rows = new ArrayList<>();
+        for (int id = 1; id <= users; id++) {
+            rows.add(new Object[]{id, "user" + id + "@benchmark.local", "user" + id, "User " + id, birthday});
+        }
+        batchInsert("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (users + 1));
+    }
+
+    private void seedLikes(int films, int users, int likes) {
+        int target = (int) Math.min(likes, (long) films * users);
+        Set<Long> pairs = new HashSet<>(target * 2);
+        List<Object[]> rows = new ArrayList<>();
+        while (pairs.size() < target) {
+            // skewed towards low ids so that a few films are clearly more popular than the rest
+            int filmId = 1 + (int) (films * Math.pow(random.nextDouble(), 3));
+            int userId = 1 + random.nextInt(users);
+            if (pairs.add(((long) filmId << 32) | userId)) {
+                rows.add(new Object[]{userId, filmId});
+            }
+        }
+        batchInsert("INSERT INTO likes (user_id, film_id) VALUES (?, ?)", rows);
+        jdbcTemplate.update("UPDATE films f SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)");
+    }
+
+    private void seedFriends(int users, int friendsPerUser) {
+        int perUser = Math.min(friendsPerUser, users - 1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int userId = 1; userId <= users; userId++) {
+            Set<Integer> friendIds = new HashSet<>();
+            while (friendIds.size() < perUser) {
+                int friendId = 1 + random.nextInt(users);
+                if (friendId != userId && friendIds.add(friendId)) {
+                    rows.add(new Object[]{userId, friendId, "CONFIRMED"});
+                }
+            }
+        }
+        batchInsert("INSERT INTO friends (user_id, friend_id, status) VALUES (?, ?, ?)", rows);
+    }
+
+    private void batchInsert(String query, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(query, rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+        }
+    }
+}
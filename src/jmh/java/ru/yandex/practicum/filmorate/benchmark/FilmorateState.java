@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendService;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+/**
+ * Boots the application without the web layer on a private in-memory H2 database and seeds it.
+ * Volumes are JMH parameters, e.g. {@code -p films=100000 -p likes=1000000 -p users=50000}.
+ */
+@State(Scope.Benchmark)
+public class FilmorateState {
+
+    @Param("10000")
+    public int films;
+
+    @Param("5000")
+    public int users;
+
+    @Param("100000")
+    public int likes;
+
+    @Param("20")
+    public int friendsPerUser;
+
+    public FilmDbStorage filmDbStorage;
+    public UserDbStorage userDbStorage;
+    public FilmService filmService;
+    public FriendService friendService;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=64",
+                        "--logging.level.root=WARN");
+        new DatasetSeeder(context.getBean(JdbcTemplate.class), 42)
+                .seed(films, users, likes, friendsPerUser);
+
+        DatasetSeeder.reloadIndexes(context);
+
+        filmDbStorage = context.getBean(FilmDbStorage.class);
+        userDbStorage = context.getBean(UserDbStorage.class);
+        filmService = context.getBean(FilmService.class);
+        friendService = context.getBean(FriendService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
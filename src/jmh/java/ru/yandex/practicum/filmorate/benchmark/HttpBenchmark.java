@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform vs virtual request threads under concurrent load: throughput and the latency distribution
+ * (p99/p99.9 in the sample-time results). The client concurrency is set with {@code -t}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class HttpBenchmark {
+
+    @Benchmark
+    public int popularFilms(HttpState state) throws IOException, InterruptedException {
+        return state.send("GET", "/films/popular?count=10");
+    }
+
+    @Benchmark
+    public int addLike(HttpState state) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(state.films);
+        int userId = 1 + random.nextInt(state.users);
+        return state.send("PUT", "/films/" + filmId + "/like/" + userId);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mapper.UserRowMapper;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapper throughput in rows per second, measured over an in-memory result set so that no query time is included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+    private static final int ROWS = 1000;
+
+    private final FilmRowMapper filmRowMapper = new FilmRowMapper();
+    private final UserRowMapper userRowMapper = new UserRowMapper();
+    private SimpleResultSet filmRows;
+    private SimpleResultSet userRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Date date = Date.valueOf(LocalDate.of(2000, 1, 1));
+        filmRows = new SimpleResultSet();
+        filmRows.setAutoClose(false);
+        filmRows.addColumn("id", Types.INTEGER, 10, 0);
+        filmRows.addColumn("name", Types.VARCHAR, 255, 0);
+        filmRows.addColumn("description", Types.VARCHAR, 200, 0);
+        filmRows.addColumn("release_date", Types.DATE, 0, 0);
+        filmRows.addColumn("duration", Types.INTEGER, 10, 0);
+        filmRows.addColumn("like_count", Types.INTEGER, 10, 0);
+        filmRows.addColumn("version", Types.BIGINT, 19, 0);
+        filmRows.addColumn("rating_id", Types.INTEGER, 10, 0);
+        filmRows.addColumn("rating_name", Types.VARCHAR, 50, 0);
+        userRows = new SimpleResultSet();
+        userRows.setAutoClose(false);
+        userRows.addColumn("id", Types.INTEGER, 10, 0);
+        userRows.addColumn("email", Types.VARCHAR, 255, 0);
+        userRows.addColumn("login", Types.VARCHAR, 255, 0);
+        userRows.addColumn("name", Types.VARCHAR, 255, 0);
+        userRows.addColumn("birthday", Types.DATE, 0, 0);
+        for (int id = 1; id <= ROWS; id++) {
+            filmRows.addRow(id, "Film " + id, "Description of film " + id, date, 120, id % 50, 1L, 1, "G");
+            userRows.addRow(id, "user" + id + "@benchmark.local", "user" + id, "User " + id, date);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void filmRowMapper(Blackhole blackhole) throws SQLException {
+        filmRows.beforeFirst();
+        int rowNum = 0;
+        while (filmRows.next()) {
+            blackhole.consume(filmRowMapper.mapRow(filmRows, rowNum++));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void userRowMapper(Blackhole blackhole) throws SQLException {
+        userRows.beforeFirst();
+        int rowNum = 0;
+        while (userRows.next()) {
+            blackhole.consume(userRowMapper.mapRow(userRows, rowNum++));
+        }
+    }
+}
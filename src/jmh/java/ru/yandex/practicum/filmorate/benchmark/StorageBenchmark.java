@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    @Benchmark
+    public List<Film> getAllFilms(FilmorateState state) {
+        return state.filmDbStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public Optional<Film> getFilmById(FilmorateState state) {
+        return state.filmDbStorage.getFilmById(1 + ThreadLocalRandom.current().nextInt(state.films));
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms(FilmorateState state) {
+        return state.filmService.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(FilmorateState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return state.friendService.getCommonFriends(1 + random.nextInt(state.users), 1 + random.nextInt(state.users));
+    }
+}
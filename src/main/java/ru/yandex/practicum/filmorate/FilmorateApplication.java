@@ -2,11 +2,18 @@ package ru.yandex.practicum.filmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.yandex.practicum.filmorate.cli.BulkImportCommand;
 
 @SpringBootApplication
+@EnableScheduling
 public class FilmorateApplication {
 	public static void main(String[] args) {
-		SpringApplication.run(FilmorateApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(FilmorateApplication.class, args);
+		if (context.getBean(BulkImportCommand.class).isCompleted()) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
\ No newline at end of file
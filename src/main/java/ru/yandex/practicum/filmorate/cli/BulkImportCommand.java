@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.cli;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.service.ImportFormat;
+import ru.yandex.practicum.filmorate.service.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Loads files given on the command line, e.g.
+ * {@code java -jar filmorate.jar --import.users=users.csv --import.films=films.ndjson}.
+ * Users and films go first, so likes and friendships in the same run can refer to them.
+ * After an import the application exits instead of serving requests, with exit code 1 if any row was rejected.
+ */
+@Slf4j
+@Component
+public class BulkImportCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    private final BulkImportService bulkImportService;
+    private volatile boolean completed;
+    private volatile int exitCode;
+
+    public BulkImportCommand(BulkImportService bulkImportService) {
+        this.bulkImportService = bulkImportService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Step> steps = List.of(
+                new Step("import.users", bulkImportService::importUsers),
+                new Step("import.films", bulkImportService::importFilms),
+                new Step("import.likes", bulkImportService::importLikes),
+                new Step("import.friends", bulkImportService::importFriendships));
+        if (steps.stream().noneMatch(step -> args.containsOption(step.option()))) {
+            return;
+        }
+        boolean failed = false;
+        for (Step step : steps) {
+            List<String> files = args.getOptionValues(step.option());
+            if (files == null) {
+                continue;
+            }
+            for (String file : files) {
+                ImportReport report = step.run(Path.of(file));
+                log.info("{}: {} rows, {} imported, {} failed", file, report.rows(), report.imported(),
+                        report.failed());
+                report.errors().forEach(error -> log.warn("{}:{}: {}", file, error.line(), error.message()));
+                failed |= report.failed() > 0;
+            }
+        }
+        exitCode = failed ? 1 : 0;
+        completed = true;
+    }
+
+    /**
+     * Whether this run imported files, so the application should exit rather than keep serving.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private record Step(String option, BiFunction<InputStream, ImportFormat, ImportReport> importer) {
+
+        ImportReport run(Path file) {
+            try (InputStream in = Files.newInputStream(file)) {
+                return importer.apply(in, ImportFormat.fromFileName(file.toString()));
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot read " + file, ex);
+            }
+        }
+    }
+}
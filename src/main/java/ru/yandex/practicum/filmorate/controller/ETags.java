@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Strong entity tags built from in-memory versions. Versions start from zero on every start,
+ * so the tag also carries the process start time to keep tags issued by an earlier run from matching.
+ */
+final class ETags {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private ETags() {
+    }
+
+    static String of(String resource, long version) {
+        return "\"" + resource + "-" + EPOCH + "-" + version + "\"";
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        return matches(ifNoneMatch, etag, () -> true);
+    }
+
+    /**
+     * A resource that does not exist has no current representation, so neither {@code *} nor any tag matches it
+     * (RFC 9110, section 13.1.2). Existence is only checked when a tag would match.
+     */
+    static boolean matches(String ifNoneMatch, String etag, BooleanSupplier exists) {
+        return tagMatches(ifNoneMatch, etag) && exists.getAsBoolean();
+    }
+
+    private static boolean tagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            // If-None-Match uses weak comparison
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+}
@@ -3,7 +3,10 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,27 +14,40 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.ErrorResponse;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportFormat;
+import ru.yandex.practicum.filmorate.service.ImportReport;
+import ru.yandex.practicum.filmorate.storage.film.FilmFilter;
 
-import java.util.Collection;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
 
     private static final Logger log = LoggerFactory.getLogger(FilmController.class);
+    private static final int DEFAULT_PAGE_SIZE = 100;
     private final FilmService filmService;
+    private final NdjsonResponseWriter ndjsonResponseWriter;
+    private final BulkImportService bulkImportService;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, NdjsonResponseWriter ndjsonResponseWriter,
+                          BulkImportService bulkImportService) {
         this.filmService = filmService;
+        this.ndjsonResponseWriter = ndjsonResponseWriter;
+        this.bulkImportService = bulkImportService;
     }
 
     @PostMapping
@@ -45,6 +61,18 @@ public class FilmController {
         }
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<ImportReport> importFilms(
+            InputStream body, @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType) {
+        return ResponseEntity.ok(bulkImportService.importFilms(body, ImportFormat.fromContentType(contentType)));
+    }
+
+    @PostMapping("/likes/bulk")
+    public ResponseEntity<ImportReport> importLikes(
+            InputStream body, @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType) {
+        return ResponseEntity.ok(bulkImportService.importLikes(body, ImportFormat.fromContentType(contentType)));
+    }
+
     @PutMapping
     public ResponseEntity<?> updateFilm(@Valid @RequestBody Film film) {
         try {
@@ -56,14 +84,28 @@ public class FilmController {
         } catch (NoSuchElementException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ErrorResponse("Not found", ex.getMessage()));
+        } catch (OptimisticLockingFailureException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponse("Conflict", ex.getMessage()));
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getFilmById(@PathVariable int id) {
+    public ResponseEntity<?> getFilmById(@PathVariable int id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                         String ifNoneMatch) {
+        // read the version before the film, so a concurrent change can only make the tag stale, never the body
+        long version = filmService.getFilmVersion(id);
+        String etag = ETags.of("film-" + id, version);
+        if (ETags.matches(ifNoneMatch, etag, () -> filmService.existsFilmById(id))) {
+            return ETags.notModified(etag);
+        }
         try {
-            Film film = filmService.getFilmById(id);
-            return ResponseEntity.ok(film);
+            byte[] film = filmService.getFilmJsonById(id, version);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(film);
         } catch (NoSuchElementException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ErrorResponse("Not found", ex.getMessage()));
@@ -71,7 +113,22 @@ public class FilmController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Film>> getAllFilms() {
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(required = false) Integer after,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) List<Integer> genre,
+                                                  @RequestParam(required = false) List<Integer> mpa,
+                                                  @RequestParam(required = false) Integer yearFrom,
+                                                  @RequestParam(required = false) Integer yearTo,
+                                                  @RequestParam(required = false) String sort) {
+        if (genre != null || mpa != null || yearFrom != null || yearTo != null || sort != null) {
+            FilmFilter filter = new FilmFilter(genre, mpa, yearFrom, yearTo, FilmFilter.Sort.fromParam(sort));
+            return ResponseEntity.ok(filmService.findFilms(filter, after == null ? 0 : after,
+                    limit == null ? DEFAULT_PAGE_SIZE : limit));
+        }
+        if (after != null || limit != null) {
+            return ResponseEntity.ok(filmService.getFilms(after == null ? 0 : after,
+                    limit == null ? DEFAULT_PAGE_SIZE : limit));
+        }
         List<Film> films = filmService.getAllFilms();
         if (films.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
@@ -79,6 +136,11 @@ public class FilmController {
         return ResponseEntity.ok(films);
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllFilms() {
+        return ndjsonResponseWriter.stream(filmService::streamAllFilms);
+    }
+
     @PutMapping("/{filmId}/like/{userId}")
     public ResponseEntity<?> addLike(@PathVariable int filmId, @PathVariable int userId) {
         log.info("Adding like to film ID: {} by user ID: {}", filmId, userId);
@@ -89,6 +151,9 @@ public class FilmController {
         } catch (NoSuchElementException ex) {
             log.warn("Error adding like: {}", ex.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", ex.getMessage()));
+        } catch (RejectedExecutionException ex) {
+            log.warn("Like rejected: {}", ex.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", ex.getMessage()));
         } catch (Exception ex) {
             log.error("Unexpected error while adding like", ex);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Unexpected error occurred."));
@@ -103,13 +168,37 @@ public class FilmController {
         } catch (NoSuchElementException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ErrorResponse("Not found", ex.getMessage()));
+        } catch (RejectedExecutionException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ErrorResponse("Service unavailable", ex.getMessage()));
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchFilms(@RequestParam(required = false) String q,
+                                         @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(filmService.searchFilms(q, limit));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse("Validation error", ex.getMessage()));
         }
     }
 
     @GetMapping("/popular")
-    public ResponseEntity<Collection<Film>> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        Collection<Film> popularFilms = filmService.getPopularFilms(count);
-        return ResponseEntity.ok(popularFilms);
+    public ResponseEntity<byte[]> getPopularFilms(
+            @RequestParam(defaultValue = "10") int count,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long version = filmService.getPopularFilmsVersion(count);
+        String etag = ETags.of("popular-" + count, version);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        byte[] popularFilms = filmService.getPopularFilmsJson(count, version);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(popularFilms);
     }
 
 }
\ No newline at end of file
@@ -2,10 +2,12 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.exception.ErrorResponse;
@@ -24,18 +26,29 @@ public class GenreController {
     private final GenreService genreService;
 
     @GetMapping()
-    public ResponseEntity<Collection<Genre>> getAll() {
-        return new ResponseEntity<>(
-                genreService.getAll(),
-                HttpStatus.OK);
+    public ResponseEntity<Collection<Genre>> getAll(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = ETags.of("genres", genreService.getVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(genreService.getAll());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getById(@PathVariable long id) {
+    public ResponseEntity<?> getById(@PathVariable long id,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                     String ifNoneMatch) {
+        String etag = ETags.of("genres", genreService.getVersion());
+        if (ETags.matches(ifNoneMatch, etag, () -> genreService.existsById(id))) {
+            return ETags.notModified(etag);
+        }
         try {
-            return new ResponseEntity<>(
-                    genreService.getById(id),
-                    HttpStatus.OK);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .body(genreService.getById(id));
         } catch (NoSuchElementException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ErrorResponse("Not found", ex.getMessage()));
@@ -2,10 +2,12 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.exception.ErrorResponse;
@@ -23,18 +25,29 @@ public class MpaController {
     private final MpaService mpaService;
 
     @GetMapping()
-    public ResponseEntity<Collection<Mpa>> getAll() {
-        return new ResponseEntity<>(
-                mpaService.getAll(),
-                HttpStatus.OK);
+    public ResponseEntity<Collection<Mpa>> getAll(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = ETags.of("mpas", mpaService.getVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(mpaService.getAll());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getById(@PathVariable int id) {
+    public ResponseEntity<?> getById(@PathVariable int id,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                     String ifNoneMatch) {
+        String etag = ETags.of("mpas", mpaService.getVersion());
+        if (ETags.matches(ifNoneMatch, etag, () -> mpaService.existsById(id))) {
+            return ETags.notModified(etag);
+        }
         try {
-            return new ResponseEntity<>(
-                    mpaService.getById(id),
-                    HttpStatus.OK);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .body(mpaService.getById(id));
         } catch (NoSuchElementException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ErrorResponse("Not found", ex.getMessage()));
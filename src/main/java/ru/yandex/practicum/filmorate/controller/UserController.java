@@ -4,14 +4,23 @@ import jakarta.validation.Valid;
 import jakarta.validation.ValidationException;
 import jakarta.validation.constraints.Positive;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.FriendService;
+import ru.yandex.practicum.filmorate.service.ImportFormat;
+import ru.yandex.practicum.filmorate.service.ImportReport;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -22,12 +31,21 @@ import java.util.NoSuchElementException;
 @Validated
 public class UserController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
     private final UserService userService;
     private final FriendService friendService;
+    private final NdjsonResponseWriter ndjsonResponseWriter;
+    private final BulkImportService bulkImportService;
+    private final FilmService filmService;
 
-    public UserController(UserService userService, FriendService friendService) {
+    public UserController(UserService userService, FriendService friendService,
+                          NdjsonResponseWriter ndjsonResponseWriter, BulkImportService bulkImportService,
+                          FilmService filmService) {
         this.userService = userService;
         this.friendService = friendService;
+        this.filmService = filmService;
+        this.ndjsonResponseWriter = ndjsonResponseWriter;
+        this.bulkImportService = bulkImportService;
     }
 
     @PostMapping
@@ -45,9 +63,26 @@ public class UserController {
         }
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<ImportReport> importUsers(
+            InputStream body, @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType) {
+        return ResponseEntity.ok(bulkImportService.importUsers(body, ImportFormat.fromContentType(contentType)));
+    }
+
+    @PostMapping("/friends/bulk")
+    public ResponseEntity<ImportReport> importFriendships(
+            InputStream body, @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType) {
+        return ResponseEntity.ok(bulkImportService.importFriendships(body, ImportFormat.fromContentType(contentType)));
+    }
+
     @GetMapping
-    public ResponseEntity<?> getAllUsers() {
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) Integer after,
+                                         @RequestParam(required = false) Integer limit) {
         try {
+            if (after != null || limit != null) {
+                return ResponseEntity.ok(userService.getUsers(after == null ? 0 : after,
+                        limit == null ? DEFAULT_PAGE_SIZE : limit));
+            }
             List<User> users = userService.getAllUsers();
             if (users.isEmpty()) {
                 log.info("No users found.");
@@ -55,12 +90,20 @@ public class UserController {
             }
             log.info("Returning all users, total count: {}", users.size());
             return ResponseEntity.ok(users);
+        } catch (ValidationException e) {
+            log.warn("Invalid page request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Error retrieving users", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "An unexpected error occurred."));
         }
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ndjsonResponseWriter.stream(userService::streamAllUsers);
+    }
+
     @PutMapping
     public ResponseEntity<?> updateUser(@Valid @RequestBody User user) {
         log.info("Attempting to update user: {}", user);
@@ -145,6 +188,22 @@ public class UserController {
         }
     }
 
+    @GetMapping("/{userId}/friends/suggestions")
+    public ResponseEntity<?> getFriendSuggestions(@PathVariable @Positive int userId,
+                                                  @RequestParam(defaultValue = "10") int limit) {
+        try {
+            if (!friendService.isUserExist(userId)) {
+                log.warn("User not found. userId={}", userId);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found"));
+            }
+            List<User> suggestions = friendService.getFriendSuggestions(userId, limit);
+            log.info("Returning friend suggestions for userId={}, count={}", userId, suggestions.size());
+            return ResponseEntity.ok(suggestions);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{userId}/friends/common/{otherId}")
     public ResponseEntity<?> getCommonFriends(@PathVariable @Positive int userId, @PathVariable @Positive int otherId) {
         try {
@@ -160,4 +219,19 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Unexpected error occurred"));
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{userId}/recommendations")
+    public ResponseEntity<?> getRecommendations(@PathVariable @Positive int userId,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<Film> films = filmService.getRecommendations(userId, limit);
+            log.info("Returning recommendations for userId={}, count={}", userId, films.size());
+            return ResponseEntity.ok(films);
+        } catch (NoSuchElementException e) {
+            log.warn("User not found. userId={}", userId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -19,6 +19,8 @@ public class FilmRowMapper implements RowMapper<Film> {
         film.setDescription(rs.getString("description"));
         film.setReleaseDate(rs.getDate("release_date").toLocalDate());
         film.setDuration(rs.getInt("duration"));
+        film.setLikeCount(rs.getInt("like_count"));
+        film.setVersion(rs.getLong("version"));
         film.setMpa(Mpa.builder().id(rs.getInt("rating_id"))
                 .name(rs.getString("rating_name")).build());
         return film;
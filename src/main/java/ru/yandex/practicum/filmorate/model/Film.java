@@ -39,14 +39,22 @@ public class Film implements Comparable<Film> {
     @NotNull(message = "Genres cannot be null")
     private List<Genre> genres = new ArrayList<>();
 
-    private List<Integer> likes = new ArrayList<>();
+    @Builder.Default
+    private LikeSet likes = LikeSet.empty();
+
+    private int likeCount;
 
     @NotNull(message = "MPA rating cannot be null")
     private Mpa mpa;
 
+    /**
+     * Number of updates of the film. An update carrying a stale version is rejected; without one it is not checked.
+     */
+    private Long version;
+
     @Override
     public int compareTo(Film o) {
-        int likeComparison = Integer.compare(o.getLikes().size(), this.likes.size());
+        int likeComparison = Integer.compare(o.getLikeCount(), this.likeCount);
         if (likeComparison != 0) {
             return likeComparison;
         }
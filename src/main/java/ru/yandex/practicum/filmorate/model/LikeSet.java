@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import ru.yandex.practicum.filmorate.util.SortedIntArrays;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable set of ids of the users who liked a film, kept as a sorted int array:
+ * 4 bytes per like instead of a boxed Integer plus a list slot. Serialized as a plain JSON array.
+ */
+@JsonSerialize(using = LikeSet.Serializer.class)
+@JsonDeserialize(using = LikeSet.Deserializer.class)
+public final class LikeSet {
+
+    private static final LikeSet EMPTY = new LikeSet(SortedIntArrays.EMPTY);
+
+    private final int[] userIds;
+
+    private LikeSet(int[] userIds) {
+        this.userIds = userIds;
+    }
+
+    public static LikeSet empty() {
+        return EMPTY;
+    }
+
+    public static LikeSet of(int... userIds) {
+        return userIds.length == 0 ? EMPTY : new LikeSet(SortedIntArrays.sortedDistinct(userIds));
+    }
+
+    public int size() {
+        return userIds.length;
+    }
+
+    public boolean isEmpty() {
+        return userIds.length == 0;
+    }
+
+    public boolean contains(int userId) {
+        return SortedIntArrays.contains(userIds, userId);
+    }
+
+    public LikeSet with(int userId) {
+        int[] updated = SortedIntArrays.add(userIds, userId);
+        return updated == userIds ? this : new LikeSet(updated);
+    }
+
+    public LikeSet without(int userId) {
+        int[] updated = SortedIntArrays.remove(userIds, userId);
+        return updated == userIds ? this : new LikeSet(updated);
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(userIds);
+    }
+
+    public int[] toArray() {
+        return userIds.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof LikeSet other && Arrays.equals(userIds, other.userIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(userIds);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(userIds);
+    }
+
+    static class Serializer extends StdSerializer<LikeSet> {
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(LikeSet.class);
+        }
+
+        @Override
+        public void serialize(LikeSet value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeArray(value.userIds, 0, value.userIds.length);
+        }
+    }
+
+    static class Deserializer extends StdDeserializer<LikeSet> {
+        private static final long serialVersionUID = 1L;
+
+        Deserializer() {
+            super(LikeSet.class);
+        }
+
+        @Override
+        public LikeSet deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return of(ctxt.readValue(p, int[].class));
+        }
+
+        @Override
+        public LikeSet getNullValue(DeserializationContext ctxt) {
+            return EMPTY;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeChange;
+import ru.yandex.practicum.filmorate.storage.user.Friendship;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.CsvLines;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Streams NDJSON or CSV rows into the storages. Rows are validated one by one against the cached dictionaries
+ * and written in chunks of {@code filmorate.import.chunk-size}, one transaction per chunk. When a chunk fails its rows
+ * are retried one at a time, so a bad row is reported by its line number and the rest of the load goes on.
+ * CSV files start with a header naming the same fields as the JSON rows; film genres are ids separated by '|'.
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmValidator filmValidator;
+    private final UserValidator userValidator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public BulkImportService(FilmStorage filmStorage, UserStorage userStorage, FilmValidator filmValidator,
+                             UserValidator userValidator, ObjectMapper objectMapper,
+                             @Value("${filmorate.import.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.filmValidator = filmValidator;
+        this.userValidator = userValidator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportReport importFilms(InputStream in, ImportFormat format) {
+        return importRows("films", in, format, Film.class, BulkImportService::filmColumns, this::validateFilm,
+                rows -> filmStorage.addFilms(rows).size());
+    }
+
+    public ImportReport importUsers(InputStream in, ImportFormat format) {
+        return importRows("users", in, format, User.class, UnaryOperator.identity(), userValidator::validate,
+                rows -> userStorage.addUsers(rows).size());
+    }
+
+    public ImportReport importLikes(InputStream in, ImportFormat format) {
+        return importRows("likes", in, format, LikeRow.class, UnaryOperator.identity(), this::validateLike,
+                rows -> filmStorage.applyLikes(rows.stream()
+                        .map(row -> new LikeChange(row.filmId(), row.userId(), true))
+                        .toList()));
+    }
+
+    public ImportReport importFriendships(InputStream in, ImportFormat format) {
+        return importRows("friendships", in, format, Friendship.class, UnaryOperator.identity(),
+                this::validateFriendship, rows -> {
+                    userStorage.addFriendships(rows.stream()
+                            .map(row -> row.status() != null ? row
+                                    : new Friendship(row.userId(), row.friendId(), FriendshipStatus.PENDING))
+                            .toList());
+                    return rows.size();
+                });
+    }
+
+    private <T> ImportReport importRows(String kind, InputStream in, ImportFormat format, Class<T> type,
+                                        UnaryOperator<Map<String, Object>> columns, Function<T, String> validate,
+                                        ToIntFunction<List<T>> write) {
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkLines = new ArrayList<>(chunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> header = null;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == ImportFormat.CSV && header == null) {
+                    header = CsvLines.split(line).stream()
+                            .map(String::trim)
+                            .toList();
+                    continue;
+                }
+                progress.rows++;
+                T row;
+                try {
+                    row = format == ImportFormat.NDJSON
+                            ? objectMapper.readValue(line, type)
+                            : objectMapper.convertValue(columns.apply(toColumns(header, line)), type);
+                } catch (IOException | IllegalArgumentException ex) {
+                    progress.fail(lineNumber, "Cannot parse row: " + message(ex));
+                    continue;
+                }
+                String error = validate.apply(row);
+                if (error != null) {
+                    progress.fail(lineNumber, error);
+                    continue;
+                }
+                chunk.add(row);
+                chunkLines.add(lineNumber);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, chunkLines, write, progress);
+                    chunk = new ArrayList<>(chunkSize);
+                    chunkLines = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read " + kind, ex);
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, chunkLines, write, progress);
+        }
+        log.info("Imported {} of {} {} rows in {} ms", progress.imported, progress.rows, kind,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new ImportReport(progress.rows, progress.imported, progress.failed, progress.errors);
+    }
+
+    private <T> void writeChunk(List<T> chunk, List<Integer> lines, ToIntFunction<List<T>> write,
+                                Progress progress) {
+        try {
+            progress.imported += write.applyAsInt(chunk);
+        } catch (RuntimeException ex) {
+            log.debug("Chunk of {} rows failed, retrying row by row: {}", chunk.size(), message(ex));
+            for (int idx = 0; idx < chunk.size(); idx++) {
+                try {
+                    progress.imported += write.applyAsInt(List.of(chunk.get(idx)));
+                } catch (RuntimeException rowEx) {
+                    progress.fail(lines.get(idx), message(rowEx));
+                }
+            }
+        }
+    }
+
+    private String validateFilm(Film film) {
+        if (film.getGenres() == null) {
+            film.setGenres(List.of());
+        }
+        film.setGenres(film.getGenres().stream()
+                .distinct()
+                .toList());
+        return filmValidator.validate(film);
+    }
+
+    private String validateLike(LikeRow like) {
+        if (!filmStorage.existsFilmById(like.filmId())) {
+            return "Film with ID " + like.filmId() + " not found.";
+        }
+        if (!userStorage.existsUserById(like.userId())) {
+            return "User with ID " + like.userId() + " not found.";
+        }
+        return null;
+    }
+
+    private String validateFriendship(Friendship friendship) {
+        if (friendship.userId() == friendship.friendId()) {
+            return "User cannot be a friend of themselves";
+        }
+        if (!userStorage.existsUserById(friendship.userId())) {
+            return "User with ID " + friendship.userId() + " not found.";
+        }
+        if (!userStorage.existsUserById(friendship.friendId())) {
+            return "User with ID " + friendship.friendId() + " not found.";
+        }
+        return null;
+    }
+
+    private static Map<String, Object> toColumns(List<String> header, String line) {
+        List<String> fields = CsvLines.split(line);
+        if (fields.size() != header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " fields, got " + fields.size());
+        }
+        Map<String, Object> columns = new HashMap<>();
+        for (int idx = 0; idx < fields.size(); idx++) {
+            String value = fields.get(idx).trim();
+            columns.put(header.get(idx), value.isEmpty() ? null : value);
+        }
+        return columns;
+    }
+
+    private static Map<String, Object> filmColumns(Map<String, Object> columns) {
+        Object mpa = columns.get("mpa");
+        if (mpa != null) {
+            columns.put("mpa", Map.of("id", mpa));
+        }
+        Object genres = columns.get("genres");
+        columns.put("genres", genres == null ? List.of() : Arrays.stream(((String) genres).split("\\|"))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(id -> Map.of("id", id))
+                .toList());
+        return columns;
+    }
+
+    private static String message(Exception ex) {
+        String message = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+        return message == null ? ex.getClass().getSimpleName() : message.lines().findFirst().orElse(message);
+    }
+
+    record LikeRow(int filmId, int userId) {
+    }
+
+    private static class Progress {
+        private int rows;
+        private int imported;
+        private int failed;
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+
+        void fail(int line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(line, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.ExportSink;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the whole dataset as gzip-compressed NDJSON, one line per table row: {@code {"table":"likes","user_id":1,
+ * "film_id":2}}. Rows are streamed from the storages, so memory use does not grow with the dataset.
+ * With the database engine every table is read in one serializable read-only transaction. The memory engine
+ * copies films and users one after the other; users are never deleted, so every user a like refers to is
+ * still in the export.
+ */
+@Slf4j
+@Service
+public class ExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SCHEDULED_PREFIX = "filmorate-";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate snapshotTemplate;
+    private final Path directory;
+
+    public ExportService(FilmStorage filmStorage, UserStorage userStorage, ObjectMapper objectMapper,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${filmorate.export.directory:./export}") Path directory) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+        this.snapshotTemplate = BaseDbStorage.snapshotTransaction(transactionTemplate);
+        this.directory = directory;
+    }
+
+    /**
+     * Writes the export to the stream and finishes the gzip trailer; the stream itself is left open.
+     */
+    public void export(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Integer> rows = new TreeMap<>();
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(gzip)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+        ExportSink sink = (table, columns, values) -> {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("table", table);
+                for (int idx = 0; idx < columns.length; idx++) {
+                    generator.writeFieldName(columns[idx]);
+                    writeValue(generator, values[idx]);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            rows.merge(table, 1, Integer::sum);
+        };
+        try {
+            snapshotTemplate.executeWithoutResult(status -> {
+                filmStorage.export(sink);
+                userStorage.export(sink);
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        generator.close();
+        gzip.finish();
+        log.info("Exported {} in {} ms", rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        // ObjectMapper.writeValue would flush the stream after every value
+        switch (value) {
+            case null -> generator.writeNull();
+            case Integer number -> generator.writeNumber(number);
+            case Long number -> generator.writeNumber(number);
+            case String text -> generator.writeString(text);
+            default -> generator.writeString(value.toString());
+        }
+    }
+
+    /**
+     * Writes the export to {@code filmorate.export.directory}. The data goes to a temporary file first, so the
+     * named file only appears once it is complete; a failed export deletes the temporary file.
+     */
+    public Path exportToFile(String fileName) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName);
+        Path tmp = directory.resolve(fileName + TMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                export(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        return target;
+    }
+
+    @Scheduled(cron = "${filmorate.export.cron:-}")
+    public void scheduledExport() throws IOException {
+        deleteLeftoverFiles();
+        exportToFile(SCHEDULED_PREFIX + LocalDate.now() + ".ndjson.gz");
+    }
+
+    /**
+     * Removes temporary files of scheduled exports that were cut short by a crash or a kill.
+     */
+    private void deleteLeftoverFiles() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory,
+                SCHEDULED_PREFIX + "*" + TMP_SUFFIX)) {
+            for (Path leftover : leftovers) {
+                log.warn("Deleting unfinished export {}", leftover);
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+}
@@ -5,48 +5,50 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmFilter;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
-import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FilmService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_PAGE_SIZE = 500;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final GenreDbStorage genreDbStorage;
-    private final LikeDbStorage likeDbStorage;
-    private final MpaDbStorage mpaDbStorage;
+    private final FilmValidator filmValidator;
+    private final JsonResponseCache jsonResponseCache;
 
     public Film addFilm(Film film) {
-        validateFilm(film);
-        film.setGenres(removeDuplicateGenres(film.getGenres()));
-        List<Integer> ids = film.getGenres()
-                .stream()
-                .map(Genre::getId)
-                .toList();
-        if (!genreDbStorage.existsGenresByIds(ids)) {
-            throw new IllegalArgumentException("Genre id not exists");
-        }
-        if (!mpaDbStorage.existsMpaById(film.getMpa().getId())) {
-            throw new IllegalArgumentException("Mpa id not exists");
+        if (film.getGenres() == null) {
+            film.setGenres(List.of());
         }
+        film.setGenres(removeDuplicateGenres(film.getGenres()));
+        validateFilm(film);
         log.info("Adding film: {}", film);
         return filmStorage.addFilm(film);
     }
 
+    /**
+     * Replaces the film, its genres included; a film carrying a version is only updated if nobody changed it since.
+     */
     public Film updateFilm(Film film) {
         getFilmById(film.getId());
+        if (film.getGenres() != null) {
+            film.setGenres(removeDuplicateGenres(film.getGenres()));
+        }
         validateFilm(film);
         log.info("Updating film: {}", film);
-        return filmStorage.updateFilm(film);
+        Film updatedFilm = filmStorage.updateFilm(film);
+        jsonResponseCache.evict(filmJsonKey(film.getId()));
+        return updatedFilm;
     }
 
     public Film getFilmById(int id) {
@@ -61,52 +63,147 @@ public class FilmService {
         return filmStorage.getAllFilms();
     }
 
+    public List<Film> getFilms(int afterId, int limit) {
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative.");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    public List<Film> findFilms(FilmFilter filter, int afterId, int limit) {
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative.");
+        }
+        if (afterId > 0 && filter.sort() != FilmFilter.Sort.ID) {
+            throw new IllegalArgumentException("Cursor is only supported when sorting by id.");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (filter.yearFrom() != null && filter.yearTo() != null && filter.yearFrom() > filter.yearTo()) {
+            throw new IllegalArgumentException("yearFrom must not be after yearTo.");
+        }
+        return filmStorage.findFilms(filter, afterId, limit);
+    }
+
+    public void streamAllFilms(Consumer<Film> action) {
+        List<Film> page;
+        int afterId = 0;
+        do {
+            page = filmStorage.getFilms(afterId, STREAM_PAGE_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
     public void addLike(int filmId, int userId) {
         log.info("Adding like to film ID: {} by user ID: {}", filmId, userId);
-        getFilmById(filmId);
-        userStorage.getUserById(userId)
-                .orElseThrow(() -> {
-                    log.warn("User with ID {} not found.", userId);
-                    return new NoSuchElementException("User with ID " + userId + " not found.");
-                });
+        checkFilmExists(filmId);
+        if (!userStorage.existsUserById(userId)) {
+            log.warn("User with ID {} not found.", userId);
+            throw new NoSuchElementException("User with ID " + userId + " not found.");
+        }
         filmStorage.addLike(filmId, userId);
+        jsonResponseCache.evict(filmJsonKey(filmId));
         log.info("Like added successfully to film ID: {} by user ID: {}", filmId, userId);
     }
 
     public void removeLike(int filmId, int userId) {
         log.info("Removing like from film ID: {} by user ID: {}", filmId, userId);
-        getFilmById(filmId);
-        if (!likeDbStorage.existsLike(filmId, userId)) {
+        checkFilmExists(filmId);
+        if (!filmStorage.existsLike(filmId, userId)) {
             log.warn("User with ID {} has not liked film ID: {}", userId, filmId);
             throw new NoSuchElementException("User with ID " + userId + " has not liked this film.");
         }
         filmStorage.removeLike(filmId, userId);
+        jsonResponseCache.evict(filmJsonKey(filmId));
         log.info("Like successfully removed from film ID: {} by user ID: {}", filmId, userId);
     }
 
-    public List<Film> getPopularFilms(int count) {
-        return filmStorage.getAllFilms().stream()
-                .sorted()
-                .limit(count)
-                .toList();
+    public List<Film> getRecommendations(int userId, int limit) {
+        if (!userStorage.existsUserById(userId)) {
+            log.warn("User with ID {} not found.", userId);
+            throw new NoSuchElementException("User with ID " + userId + " not found.");
+        }
+        if (limit < 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 0 and " + MAX_PAGE_SIZE + ".");
+        }
+        int[] filmIds = filmStorage.getRecommendedFilmIds(userId, limit);
+        return filmStorage.getFilmsByIds(Arrays.stream(filmIds).boxed().toList());
     }
 
-    private void validateFilm(Film film) {
-        if (film.getName() == null || film.getName().trim().isEmpty()) {
-            log.error("Validation failed: Film name is empty.");
-            throw new IllegalArgumentException("Film name cannot be empty.");
+    public List<Film> searchFilms(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query cannot be empty.");
         }
-        if (film.getDescription() != null && film.getDescription().length() > 200) {
-            log.error("Validation failed: Film description exceeds 200 characters.");
-            throw new IllegalArgumentException("Description is too long (max 200 characters).");
+        if (limit < 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 0 and " + MAX_PAGE_SIZE + ".");
         }
-        if (film.getReleaseDate() != null && film.getReleaseDate().isBefore(LocalDate.of(1900, 1, 1))) {
-            log.error("Validation failed: Release date is before 1900.");
-            throw new IllegalArgumentException("Release date must not be before 1900.");
+        int[] filmIds = filmStorage.searchFilmIds(query, limit);
+        return filmStorage.getFilmsByIds(Arrays.stream(filmIds).boxed().toList());
+    }
+
+    public List<Film> getPopularFilms(int count) {
+        checkPopularCount(count);
+        return filmStorage.getPopularFilms(count);
+    }
+
+    /**
+     * The film as JSON, rendered at most once per film version.
+     */
+    public byte[] getFilmJsonById(int id, long version) {
+        return jsonResponseCache.get(filmJsonKey(id), version, () -> getFilmById(id));
+    }
+
+    public byte[] getPopularFilmsJson(int count, long version) {
+        // checked before the key is built, so arbitrary counts cannot crowd the hot entries out of the cache
+        checkPopularCount(count);
+        return jsonResponseCache.get("popular-" + count, version, () -> filmStorage.getPopularFilms(count));
+    }
+
+    public boolean existsFilmById(int id) {
+        return filmStorage.existsFilmById(id);
+    }
+
+    public long getFilmVersion(int id) {
+        return filmStorage.getFilmVersion(id);
+    }
+
+    /**
+     * Rejects an out-of-range count here, before the controller builds a tag for it.
+     */
+    public long getPopularFilmsVersion(int count) {
+        checkPopularCount(count);
+        return filmStorage.getPopularFilmsVersion();
+    }
+
+    private static void checkPopularCount(int count) {
+        if (count < 0 || count > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Count must be between 0 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+    private static String filmJsonKey(int filmId) {
+        return "film-" + filmId;
+    }
+
+    private void checkFilmExists(int filmId) {
+        if (!filmStorage.existsFilmById(filmId)) {
+            log.warn("Film with ID {} not found.", filmId);
+            throw new NoSuchElementException("Film with ID " + filmId + " not found.");
         }
-        if (film.getDuration() <= 0) {
-            log.error("Validation failed: Film duration is non-positive.");
-            throw new IllegalArgumentException("Duration must be positive.");
+    }
+
+    private void validateFilm(Film film) {
+        String error = filmValidator.validate(film);
+        if (error != null) {
+            log.error("Validation failed: {}", error);
+            throw new IllegalArgumentException(error);
         }
         log.info("Film validation successful for film: {}", film);
     }
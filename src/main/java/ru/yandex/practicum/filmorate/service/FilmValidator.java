@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.time.LocalDate;
+
+/**
+ * Film rules shared by the API and the bulk import. Genres may be null on an update, which keeps the stored ones.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmValidator {
+    static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1900, 1, 1);
+
+    private final GenreDbStorage genreDbStorage;
+    private final MpaDbStorage mpaDbStorage;
+
+    /**
+     * The message of the first rule the film breaks, or null if it is valid.
+     */
+    public String validate(Film film) {
+        if (film.getName() == null || film.getName().isBlank()) {
+            return "Film name cannot be empty.";
+        }
+        if (film.getDescription() != null && film.getDescription().length() > 200) {
+            return "Description is too long (max 200 characters).";
+        }
+        if (film.getReleaseDate() == null) {
+            return "Release date cannot be empty.";
+        }
+        if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
+            return "Release date must not be before 1900.";
+        }
+        if (film.getDuration() <= 0) {
+            return "Duration must be positive.";
+        }
+        if (film.getMpa() == null || !mpaDbStorage.existsMpaById(film.getMpa().getId())) {
+            return "Mpa id not exists";
+        }
+        if (film.getGenres() != null
+                && !genreDbStorage.existsGenresByIds(film.getGenres().stream().map(Genre::getId).toList())) {
+            return "Genre id not exists";
+        }
+        return null;
+    }
+}
@@ -6,13 +6,19 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class FriendService {
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private final UserStorage userStorage;
 
@@ -44,10 +50,19 @@ public class FriendService {
     }
 
     public List<User> getCommonFriends(int userId, int otherId) {
-        List<User> userFriends = getFriends(userId);
-        List<User> friendFriends = getFriends(otherId);
-        return userFriends.stream()
-                .filter(friendFriends::contains)
+        return userStorage.getCommonFriends(userId, otherId);
+    }
+
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        if (limit < 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 0 and " + MAX_PAGE_SIZE + ".");
+        }
+        int[] suggestedIds = userStorage.getSuggestedFriendIds(userId, limit);
+        Map<Integer, User> users = userStorage.getUsersByIds(Arrays.stream(suggestedIds).boxed().toList()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return Arrays.stream(suggestedIds)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
 
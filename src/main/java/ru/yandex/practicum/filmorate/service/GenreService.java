@@ -28,4 +28,12 @@ public class GenreService {
         }
         return genre.get();
     }
+
+    public boolean existsById(long id) {
+        return genreDbStorage.getById(id).isPresent();
+    }
+
+    public long getVersion() {
+        return genreDbStorage.getVersion();
+    }
 }
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.service;
+
+public enum ImportFormat {
+    NDJSON,
+    CSV;
+
+    public static ImportFormat fromContentType(String contentType) {
+        return contentType != null && contentType.toLowerCase().startsWith("text/csv") ? CSV : NDJSON;
+    }
+
+    public static ImportFormat fromFileName(String fileName) {
+        return fileName.toLowerCase().endsWith(".csv") ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. {@code errors} lists the first rejected rows by line number; {@code failed} counts all.
+ * A valid row that changes nothing, such as a like that is already stored, is neither imported nor failed.
+ */
+public record ImportReport(int rows, int imported, int failed, List<RowError> errors) {
+
+    public record RowError(int line, String message) {
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * UTF-8 JSON of hot documents, kept in least-recently-used order and bounded by the total number of bytes.
+ * Every entry remembers the version of the data it was rendered from; a lookup with any other version is a miss,
+ * so a document is never served after a committed change bumped its version.
+ */
+@Component
+public class JsonResponseCache implements MeterBinder {
+    private static final String NAME = "json.responses";
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long totalBytes;
+
+    public JsonResponseCache(ObjectMapper objectMapper,
+                             @Value("${filmorate.json-cache.max-bytes:16777216}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+    }
+
+    public byte[] get(String key, long version, Supplier<?> loader) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version() == version) {
+                hits.increment();
+                return entry.json();
+            }
+        }
+        misses.increment();
+        byte[] json = serialize(loader.get());
+        put(key, new Entry(version, json));
+        return json;
+    }
+
+    public synchronized void evict(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.json().length;
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", NAME, "result", "hit")
+                .description("The number of responses served from pre-serialized JSON (hit) or rendered (miss)")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", NAME, "result", "miss")
+                .description("The number of responses served from pre-serialized JSON (hit) or rendered (miss)")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", NAME)
+                .description("The number of documents evicted to stay within the size limit")
+                .register(registry);
+        Gauge.builder("cache.size", this, JsonResponseCache::size)
+                .tags("cache", NAME)
+                .description("The number of cached documents")
+                .register(registry);
+        Gauge.builder("cache.bytes", this, JsonResponseCache::getTotalBytes)
+                .tags("cache", NAME)
+                .baseUnit("bytes")
+                .description("The total size of cached documents")
+                .register(registry);
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry current = entries.get(key);
+        // a slower reader must not replace a document rendered from newer data
+        if (current != null && current.version() > entry.version()) {
+            return;
+        }
+        if (entry.json().length > maxBytes) {
+            evict(key);
+            return;
+        }
+        entries.put(key, entry);
+        totalBytes += entry.json().length - (current == null ? 0 : current.json().length);
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().json().length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Entry(long version, byte[] json) {
+    }
+}
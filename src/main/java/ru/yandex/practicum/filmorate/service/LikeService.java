@@ -11,7 +11,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 public class LikeService {
@@ -50,11 +49,15 @@ public class LikeService {
     }
 
     public List<Film> getPopularFilms(int count) {
-        return filmLikes.entrySet().stream()
+        List<Integer> filmIds = filmLikes.entrySet().stream()
                 .sorted((a, b) -> b.getValue().size() - a.getValue().size())
                 .limit(count)
-                .map(entry -> filmStorage.getFilmById(entry.getKey())
-                        .orElseThrow(() -> new NoSuchElementException("Film with ID " + entry.getKey() + " not found.")))
-                .collect(Collectors.toList());
+                .map(Map.Entry::getKey)
+                .toList();
+        List<Film> films = filmStorage.getFilmsByIds(filmIds);
+        if (films.size() < filmIds.size()) {
+            throw new NoSuchElementException("Some of films with IDs " + filmIds + " not found.");
+        }
+        return films;
     }
 }
\ No newline at end of file
@@ -28,4 +28,12 @@ public class MpaService {
         }
         return mpa.get();
     }
+
+    public boolean existsById(long id) {
+        return mpaDbStorage.getById(id).isPresent();
+    }
+
+    public long getVersion() {
+        return mpaDbStorage.getVersion();
+    }
 }
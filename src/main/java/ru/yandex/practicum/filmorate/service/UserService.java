@@ -7,19 +7,24 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.time.LocalDate;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class UserService {
 
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_PAGE_SIZE = 500;
+
     private final UserStorage userStorage;
+    private final UserValidator userValidator;
 
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, UserValidator userValidator) {
         this.userStorage = userStorage;
+        this.userValidator = userValidator;
     }
 
     public User addUser(User user) {
@@ -33,6 +38,28 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    public List<User> getUsers(int afterId, int limit) {
+        if (afterId < 0) {
+            throw new ValidationException("Cursor must not be negative");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return userStorage.getUsers(afterId, limit);
+    }
+
+    public void streamAllUsers(Consumer<User> action) {
+        List<User> page;
+        int afterId = 0;
+        do {
+            page = userStorage.getUsers(afterId, STREAM_PAGE_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
     public User updateUser(User user) {
         log.info("Updating user: {}", user);
         validateUser(user);
@@ -51,14 +78,9 @@ public class UserService {
     }
 
     private void validateUser(User user) {
-        if (user.getLogin().contains(" ")) {
-            throw new ValidationException("Login cannot contain spaces");
-        }
-        if (user.getEmail() != null && !user.getEmail().contains("@")) {
-            throw new ValidationException("Email must be valid");
-        }
-        if (user.getBirthday() != null && user.getBirthday().isAfter(LocalDate.now())) {
-            throw new ValidationException("Birthday cannot be in the future");
+        String error = userValidator.validate(user);
+        if (error != null) {
+            throw new ValidationException(error);
         }
     }
 }
\ No newline at end of file
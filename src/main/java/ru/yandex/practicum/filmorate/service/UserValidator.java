@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * User rules shared by the API and the bulk import.
+ */
+@Component
+public class UserValidator {
+
+    /**
+     * The message of the first rule the user breaks, or null if it is valid.
+     */
+    public String validate(User user) {
+        if (user.getEmail() == null || !user.getEmail().contains("@")) {
+            return "Email must be valid";
+        }
+        if (user.getLogin() == null || user.getLogin().isEmpty() || user.getLogin().contains(" ")) {
+            return "Login cannot be empty or contain spaces";
+        }
+        if (user.getBirthday() != null && user.getBirthday().isAfter(LocalDate.now())) {
+            return "Birthday cannot be in the future";
+        }
+        return null;
+    }
+}
@@ -2,39 +2,130 @@ package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+/**
+ * Every query takes a logical name (e.g. {@code film.getAll.genres}) under which its latency and row count
+ * are recorded by {@link QueryMetrics}.
+ */
 @RequiredArgsConstructor
 public class BaseDbStorage<T> {
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     protected final JdbcTemplate jdbcTemplate;
     protected final RowMapper<T> mapper;
+    protected final QueryMetrics queryMetrics;
 
-    protected Optional<T> findOne(String query, Object... params) {
+    protected Optional<T> findOne(String name, String query, Object... params) {
+        return timed(name, () -> {
+            try {
+                T result = jdbcTemplate.queryForObject(query, mapper, params);
+                return Optional.ofNullable(result);
+            } catch (EmptyResultDataAccessException ex) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    protected List<T> findMany(String name, String query, Object... params) {
+        return timed(name, () -> jdbcTemplate.query(query, mapper, params));
+    }
+
+    protected void query(String name, String query, RowCallbackHandler handler, Object... params) {
+        int[] rows = new int[1];
+        long start = System.nanoTime();
         try {
-            T result = jdbcTemplate.queryForObject(query, mapper, params);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException ex) {
-            return Optional.empty();
+            jdbcTemplate.query(query, rs -> {
+                rows[0]++;
+                handler.processRow(rs);
+            }, params);
+        } finally {
+            queryMetrics.record(name, System.nanoTime() - start, rows[0]);
         }
     }
 
-    protected List<T> findMany(String query, Object... params) {
-        return jdbcTemplate.query(query, mapper, params);
+    /**
+     * Streams the result of the query to the sink row by row over a forward-only cursor, so the table is never
+     * held in memory. Columns are named by their lower-cased labels.
+     */
+    protected void exportTable(String name, String table, String query, ExportSink sink) {
+        int[] rows = new int[1];
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(EXPORT_FETCH_SIZE);
+                return ps;
+            }, rs -> {
+                ResultSetMetaData metaData = rs.getMetaData();
+                String[] columns = new String[metaData.getColumnCount()];
+                for (int idx = 0; idx < columns.length; idx++) {
+                    columns[idx] = metaData.getColumnLabel(idx + 1).toLowerCase();
+                }
+                Object[] values = new Object[columns.length];
+                while (rs.next()) {
+                    for (int idx = 0; idx < values.length; idx++) {
+                        Object value = rs.getObject(idx + 1);
+                        values[idx] = value instanceof java.sql.Date date ? date.toLocalDate() : value;
+                    }
+                    sink.row(table, columns, values);
+                    rows[0]++;
+                }
+                return null;
+            });
+        } finally {
+            queryMetrics.record(name, System.nanoTime() - start, rows[0]);
+        }
     }
 
-    protected boolean delete(String query, Object... params) {
-        int rows = jdbcTemplate.update(query, params);
+    /**
+     * A read-only transaction that sees one snapshot of the database for all its queries.
+     */
+    public static TransactionTemplate snapshotTransaction(TransactionTemplate transactionTemplate) {
+        TransactionTemplate snapshot = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        return snapshot;
+    }
+
+    /**
+     * Runs an insert, update or delete and returns the number of affected rows.
+     */
+    protected int execute(String name, String query, Object... params) {
+        int rows = -1;
+        long start = System.nanoTime();
+        try {
+            rows = jdbcTemplate.update(query, params);
+            return rows;
+        } finally {
+            queryMetrics.record(name, System.nanoTime() - start, rows);
+        }
+    }
+
+    protected boolean delete(String name, String query, Object... params) {
+        int rows = execute(name, query, params);
         return rows > 0;
     }
 
-    protected boolean update(String query, Object... params) {
-        int rows = jdbcTemplate.update(query, params);
+    protected boolean update(String name, String query, Object... params) {
+        int rows = execute(name, query, params);
         if (rows == 0) {
             throw new RuntimeException("Error");
         } else {
@@ -42,16 +133,21 @@ public class BaseDbStorage<T> {
         }
     }
 
-    protected int insert(String query, Object... params) {
+    protected int insert(String name, String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
 
-        jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS);
-            for (int idx = 0; idx < params.length; idx++) {
-                ps.setObject(idx + 1, params[idx]);
-            }
-            return ps;
-        }, keyHolder);
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS);
+                for (int idx = 0; idx < params.length; idx++) {
+                    ps.setObject(idx + 1, params[idx]);
+                }
+                return ps;
+            }, keyHolder);
+        } finally {
+            queryMetrics.record(name, System.nanoTime() - start, keyHolder.getKeyList().size());
+        }
         Integer id = keyHolder.getKeyAs(Integer.class);
 
         if (id != null) {
@@ -60,4 +156,71 @@ public class BaseDbStorage<T> {
             throw new RuntimeException("Error");
         }
     }
+
+    /**
+     * Runs one batched insert and returns the generated ids in the order of the rows.
+     */
+    protected int[] insertBatch(String name, String query, List<Object[]> rows) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Object[] params = rows.get(i);
+                            for (int idx = 0; idx < params.length; idx++) {
+                                ps.setObject(idx + 1, params[idx]);
+                            }
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return rows.size();
+                        }
+                    }, keyHolder);
+        } finally {
+            queryMetrics.record(name, System.nanoTime() - start, keyHolder.getKeyList().size());
+        }
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " generated keys, got " + keys.size());
+        }
+        return keys.stream()
+                .mapToInt(key -> ((Number) key.values().iterator().next()).intValue())
+                .toArray();
+    }
+
+    /**
+     * Times a raw {@code jdbcTemplate} call. Rows are taken from the result: the size of a collection,
+     * 0 or 1 for an optional, or the sum of the update counts of a batch; other results record no rows.
+     */
+    protected <R> R timed(String name, Supplier<R> call) {
+        long start = System.nanoTime();
+        R result = null;
+        try {
+            result = call.get();
+            return result;
+        } finally {
+            queryMetrics.record(name, System.nanoTime() - start, rowCount(result));
+        }
+    }
+
+    private static int rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof int[] batchCounts) {
+            int rows = 0;
+            for (int count : batchCounts) {
+                rows += Math.max(count, 0);
+            }
+            return rows;
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.function.ToIntFunction;
+
+/**
+ * With virtual threads every request gets its own thread, so thousands of them may reach the connection pool
+ * at once. This wraps the application {@link DataSource} into a {@link ConcurrencyLimitingDataSource}
+ * sized to the pool.
+ * The limit is not a second pool size: Hikari's {@code connection-timeout} is kept short so that a dead database
+ * fails requests fast, and a burst of virtual threads queueing inside Hikari would hit it too. They wait on the
+ * semaphore instead, with the longer {@code acquire-timeout-ms}, and only then ask Hikari, which then always has
+ * a connection free. {@code max-concurrency} defaults to the pool size; set it lower to keep connections free
+ * for scheduled jobs.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class DataSourceConcurrencyLimiter implements BeanPostProcessor, MeterBinder {
+
+    private final int maxConcurrency;
+    private final long acquireTimeoutMs;
+    private volatile ConcurrencyLimitingDataSource limitedDataSource;
+
+    public DataSourceConcurrencyLimiter(
+            @Value("${filmorate.datasource.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}")
+            int maxConcurrency,
+            @Value("${filmorate.datasource.acquire-timeout-ms:30000}") long acquireTimeoutMs) {
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitingDataSource)) {
+            log.info("Limiting concurrent connections of {} to {}", beanName, maxConcurrency);
+            limitedDataSource = new ConcurrencyLimitingDataSource(dataSource, maxConcurrency, acquireTimeoutMs);
+            return limitedDataSource;
+        }
+        return bean;
+    }
+
+    /**
+     * The gauges read the data source when sampled, as the registry may be bound before it is wrapped.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jdbc.limiter.available", this,
+                        limiter -> limiter.sample(ConcurrencyLimitingDataSource::getAvailablePermits))
+                .description("Connections that can still be taken without waiting")
+                .register(registry);
+        Gauge.builder("jdbc.limiter.waiting", this,
+                        limiter -> limiter.sample(ConcurrencyLimitingDataSource::getQueueLength))
+                .description("Threads waiting for a connection permit")
+                .register(registry);
+    }
+
+    private double sample(ToIntFunction<ConcurrencyLimitingDataSource> metric) {
+        ConcurrencyLimitingDataSource dataSource = limitedDataSource;
+        return dataSource == null ? Double.NaN : metric.applyAsInt(dataSource);
+    }
+}
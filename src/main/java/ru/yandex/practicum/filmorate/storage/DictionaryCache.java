@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through in-memory copy of a small, rarely changing table such as genres or ratings.
+ * A lookup of an unknown id reloads the table (at most once per second), so rows added to the database appear
+ * without a restart.
+ */
+public class DictionaryCache<T> implements MeterBinder {
+    private static final long MIN_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final Supplier<List<T>> loader;
+    private final ToIntFunction<T> idGetter;
+    private final UnaryOperator<T> copier;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private volatile Map<Integer, T> entries = Map.of();
+    private volatile long loadedAtNanos;
+    private volatile long version;
+
+    public DictionaryCache(String name, Supplier<List<T>> loader, ToIntFunction<T> idGetter,
+                           UnaryOperator<T> copier) {
+        this.name = name;
+        this.loader = loader;
+        this.idGetter = idGetter;
+        this.copier = copier;
+    }
+
+    public synchronized void load() {
+        Map<Integer, T> loaded = new LinkedHashMap<>();
+        for (T entry : loader.get()) {
+            loaded.put(idGetter.applyAsInt(entry), entry);
+        }
+        if (!loaded.equals(entries)) {
+            version++;
+        }
+        entries = Collections.unmodifiableMap(loaded);
+        loadedAtNanos = System.nanoTime();
+        loads.increment();
+    }
+
+    /**
+     * Changes only when a load returns different rows, so it can serve as an HTTP validator.
+     */
+    public long getVersion() {
+        if (entries.isEmpty()) {
+            load();
+        }
+        return version;
+    }
+
+    public List<T> getAll() {
+        Map<Integer, T> current = entries;
+        if (current.isEmpty()) {
+            misses.increment();
+            load();
+            current = entries;
+        } else {
+            hits.increment();
+        }
+        return current.values().stream()
+                .map(copier)
+                .toList();
+    }
+
+    public Optional<T> get(int id) {
+        T entry = entries.get(id);
+        if (entry != null) {
+            hits.increment();
+            return Optional.of(copier.apply(entry));
+        }
+        misses.increment();
+        reloadIfStale();
+        return Optional.ofNullable(entries.get(id)).map(copier);
+    }
+
+    public boolean containsAll(Collection<Integer> ids) {
+        if (entries.keySet().containsAll(ids)) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        reloadIfStale();
+        return entries.keySet().containsAll(ids);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", name, "result", "hit")
+                .description("The number of dictionary lookups served from memory (hit) or the database (miss)")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", name, "result", "miss")
+                .description("The number of dictionary lookups served from memory (hit) or the database (miss)")
+                .register(registry);
+        FunctionCounter.builder("cache.loads", loads, LongAdder::sum)
+                .tags("cache", name)
+                .description("The number of times the dictionary has been loaded from the database")
+                .register(registry);
+        Gauge.builder("cache.size", this, cache -> cache.entries.size())
+                .tags("cache", name)
+                .description("The number of entries in the dictionary")
+                .register(registry);
+    }
+
+    private void reloadIfStale() {
+        if (System.nanoTime() - loadedAtNanos >= MIN_RELOAD_INTERVAL_NANOS || loadedAtNanos == 0) {
+            load();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Receives the rows of a dataset export. Columns are named as in the database schema, so both storage engines
+ * produce the same export.
+ */
+@FunctionalInterface
+public interface ExportSink {
+
+    void row(String table, String[] columns, Object[] values);
+}
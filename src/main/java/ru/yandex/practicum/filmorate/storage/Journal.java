@@ -0,0 +1,239 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Durable state of an in-memory storage: the latest snapshot plus the changes made after it.
+ * Changes are appended as JSON lines to segment files named after the sequence number of their first change.
+ * A snapshot records the last sequence number it includes, so replay skips changes it already contains and a crash
+ * between writing a snapshot and deleting the segments it covers neither loses nor repeats a change.
+ * {@link #append} and {@link #rollover} are not thread-safe; the owning storage calls them under its write lock.
+ */
+@Slf4j
+public class Journal<S, E> implements Closeable {
+
+    private final Path directory;
+    private final String name;
+    private final ObjectMapper objectMapper;
+    private final JavaType snapshotType;
+    private final JavaType entryType;
+    private final boolean fsync;
+    private final Pattern segmentPattern;
+    private final Object snapshotLock = new Object();
+    private FileChannel segment;
+    private long lastSeq;
+    private volatile long snapshotSeq;
+
+    public Journal(Path directory, String name, ObjectMapper objectMapper, Class<S> stateType, Class<E> changeType,
+                   boolean fsync) {
+        this.directory = directory;
+        this.name = name;
+        this.objectMapper = objectMapper;
+        this.snapshotType = objectMapper.getTypeFactory().constructParametricType(Snapshot.class, stateType);
+        this.entryType = objectMapper.getTypeFactory().constructParametricType(Entry.class, changeType);
+        this.fsync = fsync;
+        this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)\\.journal");
+    }
+
+    /**
+     * Restores the snapshot, applies the changes made after it and opens a new segment for further changes.
+     */
+    public void replay(Consumer<S> restore, Consumer<E> apply) {
+        try {
+            Files.createDirectories(directory);
+            Path snapshotFile = snapshotFile();
+            if (Files.exists(snapshotFile)) {
+                Snapshot<S> snapshot = objectMapper.readValue(snapshotFile.toFile(), snapshotType);
+                restore.accept(snapshot.state());
+                lastSeq = snapshot.seq();
+                snapshotSeq = snapshot.seq();
+            }
+            List<Path> segments = listSegments();
+            int replayed = 0;
+            for (int idx = 0; idx < segments.size(); idx++) {
+                replayed += replaySegment(segments.get(idx), idx == segments.size() - 1, apply);
+            }
+            log.info("Journal {}: restored snapshot at {} and {} later changes", name, snapshotSeq, replayed);
+            openSegment();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot replay journal " + name, ex);
+        }
+    }
+
+    public void append(E change) {
+        long position = -1;
+        try {
+            byte[] line = objectMapper.writeValueAsBytes(new Entry<>(lastSeq + 1, change));
+            ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+            position = segment.position();
+            write(segment, buffer);
+            if (fsync) {
+                segment.force(false);
+            }
+            lastSeq++;
+        } catch (IOException ex) {
+            if (position >= 0) {
+                discardFailedAppend(position, ex);
+            }
+            throw new UncheckedIOException("Cannot append to journal " + name, ex);
+        }
+    }
+
+    public boolean hasChangesSinceSnapshot() {
+        return lastSeq > snapshotSeq;
+    }
+
+    /**
+     * Starts a new segment and returns the sequence number of the last change before it.
+     * The caller captures its state at the same moment and passes both to {@link #writeSnapshot}.
+     */
+    public long rollover() {
+        try {
+            segment.close();
+            openSegment();
+            return lastSeq;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot roll over journal " + name, ex);
+        }
+    }
+
+    public void writeSnapshot(long seq, S state) {
+        synchronized (snapshotLock) {
+            if (seq <= snapshotSeq) {
+                return;
+            }
+            try {
+                Path tmp = directory.resolve(name + ".snapshot.tmp");
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    channel.write(ByteBuffer.wrap(objectMapper.writeValueAsBytes(new Snapshot<>(seq, state))));
+                    channel.force(true);
+                }
+                Files.move(tmp, snapshotFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                snapshotSeq = seq;
+                for (Path covered : listSegments()) {
+                    if (segmentStart(covered) <= seq) {
+                        Files.delete(covered);
+                    }
+                }
+                log.info("Journal {}: wrote snapshot at {}", name, seq);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot write snapshot of " + name, ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private int replaySegment(Path file, boolean last, Consumer<E> apply) throws IOException {
+        int replayed = 0;
+        long validBytes = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                Entry<E> entry;
+                try {
+                    entry = objectMapper.readValue(line, entryType);
+                } catch (IOException ex) {
+                    if (last && next == null) {
+                        // the process stopped in the middle of this write, the change was never acknowledged
+                        log.warn("Journal {}: discarding incomplete last change in {}", name, file.getFileName());
+                        truncate(file, validBytes);
+                        break;
+                    }
+                    throw ex;
+                }
+                if (entry.seq() > lastSeq) {
+                    apply.accept(entry.change());
+                    lastSeq = entry.seq();
+                    replayed++;
+                }
+                validBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                line = next;
+            }
+        }
+        return replayed;
+    }
+
+    void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Cuts off whatever part of a failed change reached the segment, so the next change does not follow a torn line
+     * that replay would reject in the middle of the journal.
+     */
+    private void discardFailedAppend(long position, IOException failure) {
+        try {
+            segment.truncate(position);
+            segment.position(position);
+        } catch (IOException ex) {
+            failure.addSuppressed(ex);
+        }
+    }
+
+    private void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        // a segment with this start can only hold a discarded incomplete change
+        segment = FileChannel.open(directory.resolve(name + "-" + (lastSeq + 1) + ".journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> segmentPattern.matcher(file.getFileName().toString()).matches())
+                    .sorted((left, right) -> Long.compare(segmentStart(left), segmentStart(right)))
+                    .toList();
+        }
+    }
+
+    private long segmentStart(Path file) {
+        Matcher matcher = segmentPattern.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a journal segment: " + file);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private Path snapshotFile() {
+        return directory.resolve(name + ".snapshot");
+    }
+
+    record Snapshot<S>(long seq, S state) {
+    }
+
+    record Entry<E>(long seq, E change) {
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and row counts per logical query name, published as {@code db.query{query=...}} and
+ * {@code db.query.rows{query=...}}. Queries slower than {@code filmorate.db.slow-query-threshold-ms} are logged.
+ */
+@Slf4j
+@Component
+public class QueryMetrics implements MeterBinder {
+
+    private final long slowQueryThresholdNanos;
+    private final Map<String, QueryMeters> meters = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public QueryMetrics(@Value("${filmorate.db.slow-query-threshold-ms:200}") long slowQueryThresholdMs) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMs);
+    }
+
+    /**
+     * @param rows number of rows read or written, or -1 when unknown
+     */
+    public void record(String name, long elapsedNanos, int rows) {
+        if (elapsedNanos >= slowQueryThresholdNanos) {
+            log.warn("Slow query {}: {} ms, {} rows", name, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    rows < 0 ? "?" : rows);
+        }
+        QueryMeters queryMeters = meters.get(name);
+        if (queryMeters == null) {
+            MeterRegistry meterRegistry = registry;
+            if (meterRegistry == null) {
+                return;
+            }
+            queryMeters = meters.computeIfAbsent(name, key -> QueryMeters.register(meterRegistry, key));
+        }
+        queryMeters.timer().record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (rows >= 0) {
+            queryMeters.rows().record(rows);
+        }
+    }
+
+    /**
+     * Queries ordered by total time spent, most expensive first.
+     */
+    public List<QueryStats> getStats() {
+        return meters.entrySet().stream()
+                .map(entry -> QueryStats.of(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(QueryStats::totalMs).reversed())
+                .toList();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    private record QueryMeters(Timer timer, DistributionSummary rows) {
+
+        static QueryMeters register(MeterRegistry registry, String name) {
+            Timer timer = Timer.builder("db.query")
+                    .description("Execution time of a named SQL query")
+                    .tag("query", name)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            DistributionSummary rows = DistributionSummary.builder("db.query.rows")
+                    .description("Rows read or written by a named SQL query")
+                    .tag("query", name)
+                    .register(registry);
+            return new QueryMeters(timer, rows);
+        }
+    }
+
+    public record QueryStats(String query, long count, double totalMs, double meanMs, double maxMs,
+                             double p50Ms, double p95Ms, double p99Ms, double meanRows) {
+
+        static QueryStats of(String name, QueryMeters queryMeters) {
+            HistogramSnapshot snapshot = queryMeters.timer().takeSnapshot();
+            double[] percentiles = new double[3];
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                int idx = value.percentile() == 0.5 ? 0 : value.percentile() == 0.95 ? 1 : 2;
+                percentiles[idx] = value.value(TimeUnit.MILLISECONDS);
+            }
+            return new QueryStats(name, snapshot.count(), snapshot.total(TimeUnit.MILLISECONDS),
+                    snapshot.mean(TimeUnit.MILLISECONDS), snapshot.max(TimeUnit.MILLISECONDS),
+                    percentiles[0], percentiles[1], percentiles[2], queryMeters.rows().mean());
+        }
+    }
+}
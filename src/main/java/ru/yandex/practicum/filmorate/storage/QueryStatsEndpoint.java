@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/queries}: per-query latency summary, most expensive queries first.
+ */
+@Component
+@Endpoint(id = "queries")
+@RequiredArgsConstructor
+public class QueryStatsEndpoint {
+
+    private final QueryMetrics queryMetrics;
+
+    @ReadOperation
+    public List<QueryMetrics.QueryStats> queries() {
+        return queryMetrics.getStats();
+    }
+}
@@ -1,27 +1,169 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.ExportSink;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.like.LikeChange;
+import ru.yandex.practicum.filmorate.storage.like.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.util.IntMultimap;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+@Slf4j
 @Repository
+@Profile("!memory")
 public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
 
-    private final GenreDbStorage genreDbStorage;
+    // like queries are package-visible so that FilmQueryPlanTest checks the plans of the statements actually run
+    static final String INSERT_LIKE_IF_ABSENT = """
+            INSERT INTO likes (user_id, film_id)
+            SELECT ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM likes WHERE user_id = ? AND film_id = ?)""";
+    static final String EXISTS_LIKE = "SELECT COUNT(*) FROM likes WHERE user_id = ? AND film_id = ?";
+    static final String DELETE_LIKE = """
+            DELETE FROM likes
+            WHERE user_id = ? AND film_id = ?""";
+    static final String SELECT_LIKES_BY_FILM_IDS = "SELECT user_id, film_id FROM likes WHERE film_id = ANY(?)";
+    static final String SELECT_LIKE_COUNT_DRIFT = """
+            SELECT f.id, f.like_count, COUNT(l.id) AS actual_count
+            FROM films f
+            LEFT JOIN likes l ON l.film_id = f.id
+            GROUP BY f.id, f.like_count
+            HAVING f.like_count <> COUNT(l.id)""";
+    private static final int MIN_MERGE_PARTITION_SIZE = 1024;
+    private static final String CHANGE_LIKE_COUNT = "UPDATE films SET like_count = like_count + ? WHERE id = ?";
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, RowMapper<Film> mapper, GenreDbStorage genreDbStorage) {
-        super(jdbcTemplate, mapper);
-        this.genreDbStorage = genreDbStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmVersions filmVersions;
+    private final LikeIndex likeIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmFacetIndex facetIndex;
+    private final LikeWriteBehindBuffer likeWriteBehindBuffer;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final TransactionTemplate outsideTransactionTemplate;
+    private final ExecutorService loaderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, RowMapper<Film> mapper, QueryMetrics queryMetrics,
+                         FilmPopularityIndex popularityIndex, FilmVersions filmVersions, LikeIndex likeIndex,
+                         FilmSearchIndex searchIndex, FilmFacetIndex facetIndex,
+                         LikeWriteBehindBuffer likeWriteBehindBuffer, TransactionTemplate transactionTemplate) {
+        super(jdbcTemplate, mapper, queryMetrics);
+        this.popularityIndex = popularityIndex;
+        this.filmVersions = filmVersions;
+        this.likeIndex = likeIndex;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.likeWriteBehindBuffer = likeWriteBehindBuffer;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotTemplate = snapshotTransaction(transactionTemplate);
+        this.outsideTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.outsideTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+    }
+
+    /**
+     * Builds the indexes before the like flusher starts, since every flushed batch updates them.
+     */
+    @PostConstruct
+    public void start() {
+        loadIndexes();
+        likeWriteBehindBuffer.start(this::writeLikes);
+    }
+
+    /**
+     * Drains the like buffer first; its last flush still writes through this storage.
+     */
+    @PreDestroy
+    public void stop() {
+        likeWriteBehindBuffer.shutdown();
+        loaderExecutor.shutdown();
+    }
+
+    /**
+     * Builds every in-memory index from the tables; also used after rows were written behind the storage's back.
+     */
+    public void loadIndexes() {
+        loadPopularityIndex();
+        loadLikeIndex();
+        loadSearchIndex();
+        loadFacetIndex();
+    }
+
+    private void loadPopularityIndex() {
+        String query = "SELECT id, like_count FROM films";
+        Map<Integer, Integer> counts = new HashMap<>();
+        query("film.likeCounts", query, (rs) -> {
+            counts.put(rs.getInt("id"), rs.getInt("like_count"));
+        });
+        popularityIndex.rebuild(counts);
+    }
+
+    private void loadSearchIndex() {
+        List<FilmSearchIndex.FilmText> films = new ArrayList<>();
+        query("film.searchTexts", "SELECT id, name, description FROM films", (rs) -> {
+            films.add(new FilmSearchIndex.FilmText(rs.getInt("id"), rs.getString("name"),
+                    rs.getString("description")));
+        });
+        searchIndex.rebuild(films);
+    }
+
+    private void loadFacetIndex() {
+        IntMultimap.Builder genreIds = IntMultimap.builder();
+        query("film.facets.genres", "SELECT film_id, genre_id FROM film_genres", (rs) -> {
+            genreIds.put(rs.getInt("film_id"), rs.getInt("genre_id"));
+        });
+        IntMultimap genres = genreIds.build();
+        List<FilmFacetIndex.FilmFacets> films = new ArrayList<>();
+        query("film.facets", "SELECT id, rating_id, release_date FROM films", (rs) -> {
+            int filmId = rs.getInt("id");
+            films.add(new FilmFacetIndex.FilmFacets(filmId, genres.get(filmId), rs.getInt("rating_id"),
+                    rs.getObject("release_date", LocalDate.class)));
+        });
+        facetIndex.rebuild(films);
+    }
+
+    private void loadLikeIndex() {
+        Map<Integer, IntStream.Builder> userIds = new HashMap<>();
+        query("like.index", "SELECT film_id, user_id FROM likes", (rs) -> {
+            userIds.computeIfAbsent(rs.getInt("film_id"), id -> IntStream.builder()).add(rs.getInt("user_id"));
+        });
+        Map<Integer, int[]> userIdsByFilm = new HashMap<>();
+        userIds.forEach((filmId, ids) -> userIdsByFilm.put(filmId, ids.build().toArray()));
+        likeIndex.rebuild(userIdsByFilm);
     }
 
     @Override
@@ -31,9 +173,10 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                             VALUES (?, ?, ?, ?, ?)
                 """;
 
-        int filmId = insert(query, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
-                film.getMpa().getId());
+        int filmId = insert("film.insert", query, film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getMpa().getId());
         film.setId(filmId);
+        film.setVersion(0L);
 
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
             String insertGenresSql = """
@@ -45,11 +188,57 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                     .map(genre -> new Object[]{filmId, genre.getId()})
                     .toList();
 
-            jdbcTemplate.batchUpdate(insertGenresSql, batchParams);
+            timed("film.insert.genres", () -> jdbcTemplate.batchUpdate(insertGenresSql, batchParams));
         }
+        popularityIndex.addFilm(filmId);
+        searchIndex.indexFilm(filmId, film.getName(), film.getDescription());
+        facetIndex.indexFilm(toFacets(film));
+        filmVersions.filmAdded();
         return film;
     }
 
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        String query = """
+                INSERT INTO films (name, description, release_date, duration, rating_id)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+        String insertGenresSql = """
+                INSERT INTO film_genres (film_id, genre_id)
+                VALUES (?, ?)
+                """;
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] ids = insertBatch("film.bulkInsert", query, films.stream()
+                    .map(film -> new Object[]{film.getName(), film.getDescription(), film.getReleaseDate(),
+                            film.getDuration(), film.getMpa().getId()})
+                    .toList());
+            List<Object[]> genreParams = new ArrayList<>();
+            for (int idx = 0; idx < ids.length; idx++) {
+                Film film = films.get(idx);
+                film.setId(ids[idx]);
+                film.setVersion(0L);
+                if (film.getGenres() != null) {
+                    film.getGenres().forEach(genre -> genreParams.add(new Object[]{film.getId(), genre.getId()}));
+                }
+            }
+            if (!genreParams.isEmpty()) {
+                timed("film.bulkInsert.genres", () -> jdbcTemplate.batchUpdate(insertGenresSql, genreParams));
+            }
+        });
+        films.forEach(film -> {
+            popularityIndex.addFilm(film.getId());
+            searchIndex.indexFilm(film.getId(), film.getName(), film.getDescription());
+        });
+        facetIndex.indexFilms(films.stream()
+                .map(FilmDbStorage::toFacets)
+                .toList());
+        filmVersions.filmAdded();
+        return films;
+    }
+
     @Override
     public Film updateFilm(Film film) {
         String query = """
@@ -57,10 +246,35 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                 SET    name = ?,
                        description = ?,
                        release_date = ?,
-                       rating_id = ?
+                       duration = ?,
+                       rating_id = ?,
+                       version = version + 1
                 WHERE  id = ?""";
-        update(query, film.getName(), film.getDescription(), film.getReleaseDate(), film.getMpa().getId(), film.getId());
-        return film;
+        Object[] params = {film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+                film.getMpa().getId(), film.getId()};
+        Film stored = transactionTemplate.execute(status -> {
+            // the updated row stays locked until commit, so the genres below are diffed against a stable set
+            int updated = film.getVersion() == null
+                    ? execute("film.update", query, params)
+                    : execute("film.update", query + " AND version = ?", append(params, film.getVersion()));
+            if (updated == 0) {
+                if (!existsFilmById(film.getId())) {
+                    throw new NoSuchElementException("Film with ID " + film.getId() + " not found.");
+                }
+                throw new OptimisticLockingFailureException("Film with ID " + film.getId()
+                        + " was changed by another update, expected version " + film.getVersion() + ".");
+            }
+            if (film.getGenres() != null) {
+                replaceGenres(film.getId(), film.getGenres());
+            }
+            // read back under the row lock: kept genres, likes and the new version as stored
+            return getFilmById(film.getId()).orElseThrow();
+        });
+        film.setVersion(stored.getVersion());
+        searchIndex.indexFilm(stored.getId(), stored.getName(), stored.getDescription());
+        facetIndex.indexFilm(toFacets(stored));
+        filmVersions.filmChanged(stored.getId());
+        return stored;
     }
 
     @Override
@@ -72,8 +286,23 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                     f.description,
                     f.release_date,
                     f.duration,
+                    f.like_count,
+                    f.version,
                     r.id AS rating_id,
-                    r.name AS rating_name
+                    r.name AS rating_name,
+                    ARRAY(SELECT g.id
+                          FROM film_genres fg
+                          JOIN genres g ON fg.genre_id = g.id
+                          WHERE fg.film_id = f.id
+                          ORDER BY g.id) AS genre_ids,
+                    ARRAY(SELECT g.name
+                          FROM film_genres fg
+                          JOIN genres g ON fg.genre_id = g.id
+                          WHERE fg.film_id = f.id
+                          ORDER BY g.id) AS genre_names,
+                    ARRAY(SELECT l.user_id
+                          FROM likes l
+                          WHERE l.film_id = f.id) AS like_ids
                 FROM
                     films f
                 LEFT JOIN ratings r ON f.rating_id = r.id
@@ -81,16 +310,82 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                     f.id = ?
                 """;
 
-        Optional<Film> optionalFilm = findOne(query, id);
-        if (optionalFilm.isEmpty()) {
-            return Optional.empty();
-        }
+        List<Film> films = timed("film.getById", () -> jdbcTemplate.query(query, (rs, rowNum) -> {
+            Film film = mapper.mapRow(rs, rowNum);
+            Object[] genreIds = (Object[]) rs.getArray("genre_ids").getArray();
+            Object[] genreNames = (Object[]) rs.getArray("genre_names").getArray();
+            for (int idx = 0; idx < genreIds.length; idx++) {
+                film.getGenres().add(new Genre((Integer) genreIds[idx], (String) genreNames[idx]));
+            }
+            Object[] likeIds = (Object[]) rs.getArray("like_ids").getArray();
+            int[] userIds = new int[likeIds.length];
+            for (int idx = 0; idx < likeIds.length; idx++) {
+                userIds[idx] = (Integer) likeIds[idx];
+            }
+            film.setLikes(LikeSet.of(userIds));
+            return film;
+        }, id));
+        return films.stream().findFirst();
+    }
 
-        Film film = optionalFilm.get();
-        List<Genre> genres = genreDbStorage.getGenresByFilmId(id);
-        film.setGenres(genres);
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Integer[] filmIds = ids.stream()
+                .distinct()
+                .toArray(Integer[]::new);
+        String query = """
+                SELECT
+                       f.id AS film_id,
+                       f.name AS film_name,
+                       f.description,
+                       f.release_date,
+                       f.duration,
+                       f.like_count,
+                       f.version,
+                       r.id AS rating_id,
+                       r.name AS rating_name
+                FROM
+                       films f
+                LEFT JOIN ratings r ON f.rating_id = r.id
+                WHERE f.id = ANY(?)
+                """;
+        Map<Integer, Film> films = new HashMap<>();
+        fillGenresAndLikes(findMany("film.getByIds", query, (Object) filmIds))
+                .forEach(film -> films.put(film.getId(), film));
+        List<Film> result = new ArrayList<>(films.size());
+        for (Integer filmId : filmIds) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
 
-        return optionalFilm;
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        String query = """
+                SELECT
+                       f.id AS film_id,
+                       f.name AS film_name,
+                       f.description,
+                       f.release_date,
+                       f.duration,
+                       f.like_count,
+                       f.version,
+                       r.id AS rating_id,
+                       r.name AS rating_name
+                FROM
+                       films f
+                LEFT JOIN ratings r ON f.rating_id = r.id
+                WHERE f.id > ?
+                ORDER BY f.id
+                LIMIT ?
+                """;
+        return fillGenresAndLikes(findMany("film.getPage", query, afterId, limit));
     }
 
     @Override
@@ -102,58 +397,368 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                        f.description,
                        f.release_date,
                        f.duration,
+                       f.like_count,
+                       f.version,
                        r.id AS rating_id,
                        r.name AS rating_name
                 FROM
                        films f
-                LEFT JOIN ratings r ON f.rating_id = r.id;
+                LEFT JOIN ratings r ON f.rating_id = r.id
+                ORDER BY f.id
                 """;
-        List<Film> films = findMany(query);
-        Map<Integer, List<Genre>> filmsGenres = getFilmsGenres();
-        Map<Integer, List<Integer>> filmsLikes = getFilmsLikes();
-        for (Film film : films) {
-            film.getGenres().addAll(filmsGenres.getOrDefault(film.getId(), List.of()));
-            film.getLikes().addAll(filmsLikes.getOrDefault(film.getId(), List.of()));
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // loader threads use their own connections and would not see the caller's uncommitted rows
+            return mergeGenresAndLikes(findMany("film.getAll", query), loadAllFilmsGenres(), loadAllFilmsLikes());
+        }
+        CompletableFuture<List<Film>> films = CompletableFuture.supplyAsync(() -> findMany("film.getAll", query),
+                loaderExecutor);
+        CompletableFuture<FilmsGenres> genres = CompletableFuture.supplyAsync(this::loadAllFilmsGenres, loaderExecutor);
+        CompletableFuture<IntMultimap> likes = CompletableFuture.supplyAsync(this::loadAllFilmsLikes, loaderExecutor);
+        return mergeGenresAndLikes(await(films), await(genres), await(likes));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        List<Integer> ids = popularityIndex.getTop(count);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Film> films = getFilmsByIds(ids);
+        if (films.size() < ids.size()) {
+            // films removed from the table behind our back must not occupy top positions
+            Set<Integer> foundIds = films.stream()
+                    .map(Film::getId)
+                    .collect(Collectors.toSet());
+            ids.stream()
+                    .filter(id -> !foundIds.contains(id))
+                    .forEach(popularityIndex::removeFilm);
+            return getPopularFilms(count);
         }
         return films;
     }
 
+    @Override
+    public boolean existsFilmById(int id) {
+        if (popularityIndex.contains(id)) {
+            return true;
+        }
+        String query = "SELECT COUNT(*) FROM films WHERE id = ?";
+        Integer count = timed("film.exists", () -> jdbcTemplate.queryForObject(query, Integer.class, id));
+        return count != null && count > 0;
+    }
+
+    @Override
+    public boolean existsLike(int filmId, int userId) {
+        Optional<Boolean> pendingLike = likeWriteBehindBuffer.getPendingLike(filmId, userId);
+        if (pendingLike.isPresent()) {
+            return pendingLike.get();
+        }
+        Integer count = timed("like.exists",
+                () -> jdbcTemplate.queryForObject(EXISTS_LIKE, Integer.class, userId, filmId));
+        return count != null && count > 0;
+    }
+
+    @Override
+    public int applyLikes(List<LikeChange> changes) {
+        return writeLikes(changes);
+    }
+
+    @Override
+    public int[] getRecommendedFilmIds(int userId, int limit) {
+        return likeIndex.recommend(userId, limit);
+    }
+
+    @Override
+    public int[] searchFilmIds(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, int afterId, int limit) {
+        BitSet matches = facetIndex.filter(filter);
+        return getFilmsByIds(filter.sort() == FilmFilter.Sort.POPULAR
+                ? popularityIndex.getTop(limit, matches)
+                : FilmFacetIndex.idsAfter(matches, afterId, limit));
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        return filmVersions.getFilmVersion(id);
+    }
+
+    @Override
+    public long getPopularFilmsVersion() {
+        return filmVersions.getPopularVersion();
+    }
+
     @Override
     public void addLike(int filmId, int userId) {
-        String query = """
-                INSERT INTO likes (user_id, film_id)
-                VALUES (?, ?)""";
-        insert(query, userId, filmId);
+        if (likeWriteBehindBuffer.isEnabled()) {
+            likeWriteBehindBuffer.enqueue(new LikeChange(filmId, userId, true));
+            return;
+        }
+        Boolean added;
+        try {
+            added = transactionTemplate.execute(status -> {
+                if (execute("like.insert", INSERT_LIKE_IF_ABSENT, userId, filmId, userId, filmId) == 0) {
+                    return false;
+                }
+                execute("like.changeCount", CHANGE_LIKE_COUNT, 1, filmId);
+                return true;
+            });
+        } catch (DuplicateKeyException e) {
+            log.debug("Like of film {} by user {} was added concurrently", filmId, userId);
+            return;
+        }
+        if (Boolean.TRUE.equals(added)) {
+            likeIndex.addLike(filmId, userId);
+            popularityIndex.incrementLikes(filmId);
+            filmVersions.filmChanged(filmId);
+        }
     }
 
     @Override
     public void removeLike(int filmId, int userId) {
-        String query = """
-                DELETE FROM likes
-                WHERE user_id = ? AND film_id = ?""";
-        delete(query, userId, filmId);
+        if (likeWriteBehindBuffer.isEnabled()) {
+            likeWriteBehindBuffer.enqueue(new LikeChange(filmId, userId, false));
+            return;
+        }
+        Boolean removed = transactionTemplate.execute(status -> {
+            if (!delete("like.delete", DELETE_LIKE, userId, filmId)) {
+                return false;
+            }
+            execute("like.changeCount", CHANGE_LIKE_COUNT, -1, filmId);
+            return true;
+        });
+        if (Boolean.TRUE.equals(removed)) {
+            likeIndex.removeLike(filmId, userId);
+            popularityIndex.decrementLikes(filmId);
+            filmVersions.filmChanged(filmId);
+        }
     }
 
-    private Map<Integer, List<Genre>> getFilmsGenres() {
-        Map<Integer, List<Genre>> filmsGenres = new HashMap<>();
+    /**
+     * Repairs films whose {@code like_count} differs from the number of their likes rows.
+     * A film changed concurrently is left for the next run.
+     *
+     * @return number of repaired films
+     */
+    public int reconcileLikeCounts() {
+        String updateQuery = "UPDATE films SET like_count = ? WHERE id = ? AND like_count = ?";
+        int repaired = 0;
+        for (Map<String, Object> drift : timed("film.reconcile.find", () -> jdbcTemplate.queryForList(SELECT_LIKE_COUNT_DRIFT))) {
+            int filmId = ((Number) drift.get("id")).intValue();
+            int likeCount = ((Number) drift.get("like_count")).intValue();
+            int actualCount = ((Number) drift.get("actual_count")).intValue();
+            if (execute("film.reconcile.update", updateQuery, actualCount, filmId, likeCount) > 0) {
+                popularityIndex.changeLikes(filmId, actualCount - likeCount);
+                filmVersions.filmChanged(filmId);
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    @Override
+    public void export(ExportSink sink) {
+        // acknowledged likes still waiting in the buffer belong to the export; they are committed on their own,
+        // not inside the read-only snapshot the caller may have opened
+        outsideTransactionTemplate.executeWithoutResult(status -> likeWriteBehindBuffer.flush());
+        snapshotTemplate.executeWithoutResult(status -> {
+            exportTable("film.export", "films", """
+                    SELECT id, name, description, release_date, duration, rating_id
+                    FROM films
+                    ORDER BY id""", sink);
+            exportTable("film.export.genres", "film_genres", """
+                    SELECT film_id, genre_id
+                    FROM film_genres
+                    ORDER BY film_id, genre_id""", sink);
+            exportTable("film.export.likes", "likes", """
+                    SELECT user_id, film_id
+                    FROM likes
+                    ORDER BY user_id, film_id""", sink);
+        });
+    }
+
+    private FilmsGenres loadAllFilmsGenres() {
+        IntMultimap.Builder genreIds = IntMultimap.builder();
+        Map<Integer, String> genreNames = new HashMap<>();
         String query = "SELECT fg.film_id, g.id, g.name FROM film_genres fg " +
                 "JOIN genres g ON fg.genre_id = g.id";
-        jdbcTemplate.query(query, (rs) -> {
+        query("film.getAll.genres", query, (rs) -> {
+            int genreId = rs.getInt("id");
+            genreIds.put(rs.getInt("film_id"), genreId);
+            genreNames.putIfAbsent(genreId, rs.getString("name"));
+        });
+        return new FilmsGenres(genreIds.build(), genreNames);
+    }
+
+    private IntMultimap loadAllFilmsLikes() {
+        IntMultimap.Builder filmsLikes = IntMultimap.builder();
+        String query = "SELECT user_id, film_id FROM likes";
+        query("film.getAll.likes", query, (rs) -> {
+            filmsLikes.put(rs.getInt("film_id"), rs.getInt("user_id"));
+        });
+        return filmsLikes.build();
+    }
+
+    /**
+     * Films are ordered by id, so each partition covers one id range.
+     */
+    private List<Film> mergeGenresAndLikes(List<Film> films, FilmsGenres genres, IntMultimap likes) {
+        int partitions = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                films.size() / MIN_MERGE_PARTITION_SIZE));
+        int partitionSize = (films.size() + partitions - 1) / partitions;
+        IntStream.range(0, partitions).parallel().forEach(partition -> {
+            int from = partition * partitionSize;
+            for (Film film : films.subList(from, Math.min(films.size(), from + partitionSize))) {
+                genres.genreIds().forEach(film.getId(), genreId ->
+                        film.getGenres().add(new Genre(genreId, genres.genreNames().get(genreId))));
+                film.setLikes(LikeSet.of(likes.get(film.getId())));
+            }
+        });
+        return films;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private int writeLikes(List<LikeChange> changes) {
+        List<LikeChange> added = changes.stream()
+                .filter(LikeChange::added)
+                .toList();
+        List<LikeChange> removed = changes.stream()
+                .filter(change -> !change.added())
+                .toList();
+        // sorted so that concurrent writers lock films rows in the same order
+        Map<Integer, Integer> likeCountDeltas = new TreeMap<>();
+        Set<Integer> changedFilmIds = new HashSet<>();
+        List<LikeChange> applied = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] inserted = timed("like.flush.insert", () -> jdbcTemplate.batchUpdate(INSERT_LIKE_IF_ABSENT,
+                    added.stream()
+                            .map(change -> new Object[]{change.userId(), change.filmId(), change.userId(),
+                                    change.filmId()})
+                            .toList()));
+            int[] deleted = timed("like.flush.delete", () -> jdbcTemplate.batchUpdate(DELETE_LIKE, removed.stream()
+                    .map(change -> new Object[]{change.userId(), change.filmId()})
+                    .toList()));
+            for (int idx = 0; idx < inserted.length; idx++) {
+                likeCountDeltas.merge(added.get(idx).filmId(), inserted[idx], Integer::sum);
+                if (inserted[idx] > 0) {
+                    applied.add(added.get(idx));
+                    changedFilmIds.add(added.get(idx).filmId());
+                }
+            }
+            for (int idx = 0; idx < deleted.length; idx++) {
+                likeCountDeltas.merge(removed.get(idx).filmId(), -deleted[idx], Integer::sum);
+                if (deleted[idx] > 0) {
+                    applied.add(removed.get(idx));
+                    changedFilmIds.add(removed.get(idx).filmId());
+                }
+            }
+            likeCountDeltas.values().removeIf(delta -> delta == 0);
+            timed("like.flush.changeCount", () -> jdbcTemplate.batchUpdate(CHANGE_LIKE_COUNT,
+                    likeCountDeltas.entrySet().stream()
+                            .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                            .toList()));
+        });
+        for (LikeChange change : applied) {
+            if (change.added()) {
+                likeIndex.addLike(change.filmId(), change.userId());
+            } else {
+                likeIndex.removeLike(change.filmId(), change.userId());
+            }
+        }
+        likeCountDeltas.forEach(popularityIndex::changeLikes);
+        changedFilmIds.forEach(filmVersions::filmChanged);
+        return applied.size();
+    }
+
+    private List<Film> fillGenresAndLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Integer[] filmIds = films.stream()
+                .map(Film::getId)
+                .toArray(Integer[]::new);
+        Map<Integer, List<Genre>> filmsGenres = getFilmsGenres(filmIds);
+        IntMultimap filmsLikes = getFilmsLikes(filmIds);
+        for (Film film : films) {
+            film.getGenres().addAll(filmsGenres.getOrDefault(film.getId(), List.of()));
+            film.setLikes(LikeSet.of(filmsLikes.get(film.getId())));
+        }
+        return films;
+    }
+
+    private Map<Integer, List<Genre>> getFilmsGenres(Integer[] filmIds) {
+        Map<Integer, List<Genre>> filmsGenres = new HashMap<>();
+        String query = "SELECT fg.film_id, g.id, g.name FROM film_genres fg " +
+                "JOIN genres g ON fg.genre_id = g.id WHERE fg.film_id = ANY(?) ORDER BY g.id";
+        query("film.getByIds.genres", query, (rs) -> {
             int filmId = rs.getInt("film_id");
             Genre genre = new Genre(rs.getInt("id"), rs.getString("name"));
             filmsGenres.computeIfAbsent(filmId, k -> new ArrayList<>()).add(genre);
-        });
+        }, (Object) filmIds);
         return filmsGenres;
     }
 
-    private Map<Integer, List<Integer>> getFilmsLikes() {
-        Map<Integer, List<Integer>> filmsLikes = new HashMap<>();
-        String query = "SELECT user_id, film_id FROM likes";
-        jdbcTemplate.query(query, (rs) -> {
-            int filmId = rs.getInt("film_id");
-            int userId = rs.getInt("user_id");
-            filmsLikes.computeIfAbsent(filmId, k -> new ArrayList<>()).add(userId);
-        });
-        return filmsLikes;
+    private IntMultimap getFilmsLikes(Integer[] filmIds) {
+        IntMultimap.Builder filmsLikes = IntMultimap.builder();
+        query("film.getByIds.likes", SELECT_LIKES_BY_FILM_IDS, (rs) -> {
+            filmsLikes.put(rs.getInt("film_id"), rs.getInt("user_id"));
+        }, (Object) filmIds);
+        return filmsLikes.build();
+    }
+
+    /**
+     * Brings the film's genres to the given set, touching only the rows that differ.
+     */
+    private void replaceGenres(int filmId, List<Genre> genres) {
+        Set<Integer> wanted = genres.stream()
+                .map(Genre::getId)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Set<Integer> stored = new TreeSet<>(timed("film.update.genres.find", () -> jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ?", Integer.class, filmId)));
+        List<Object[]> deleted = stored.stream()
+                .filter(genreId -> !wanted.contains(genreId))
+                .map(genreId -> new Object[]{filmId, genreId})
+                .toList();
+        List<Object[]> inserted = wanted.stream()
+                .filter(genreId -> !stored.contains(genreId))
+                .map(genreId -> new Object[]{filmId, genreId})
+                .toList();
+        if (!deleted.isEmpty()) {
+            timed("film.update.genres.delete", () -> jdbcTemplate.batchUpdate(
+                    "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?", deleted));
+        }
+        if (!inserted.isEmpty()) {
+            timed("film.update.genres.insert", () -> jdbcTemplate.batchUpdate(
+                    "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", inserted));
+        }
+    }
+
+    private static Object[] append(Object[] params, Object param) {
+        Object[] result = Arrays.copyOf(params, params.length + 1);
+        result[params.length] = param;
+        return result;
+    }
+
+    private static FilmFacetIndex.FilmFacets toFacets(Film film) {
+        int[] genreIds = film.getGenres() == null ? null : film.getGenres().stream()
+                .mapToInt(Genre::getId)
+                .toArray();
+        return new FilmFacetIndex.FilmFacets(film.getId(), genreIds, film.getMpa().getId(), film.getReleaseDate());
+    }
+
+    private record FilmsGenres(IntMultimap genreIds, Map<Integer, String> genreNames) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.SortedIntArrays;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Bitmaps of film ids per genre, per rating and per release year, so a catalog filter is a few bitwise operations.
+ * A bitmap is never modified once published: writers replace it with an updated copy, once per batch,
+ * and readers combine whatever bitmaps are current. Writes are serialized.
+ */
+@Component
+public class FilmFacetIndex {
+
+    private final Map<Integer, FilmFacets> facetsByFilm = new ConcurrentHashMap<>();
+    private final Map<Integer, BitSet> filmsByGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, BitSet> filmsByMpa = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Integer, BitSet> filmsByYear = new ConcurrentSkipListMap<>();
+    private volatile BitSet allFilms = new BitSet();
+
+    public synchronized void rebuild(Collection<FilmFacets> films) {
+        facetsByFilm.clear();
+        filmsByGenre.clear();
+        filmsByMpa.clear();
+        filmsByYear.clear();
+        allFilms = new BitSet();
+        indexFilms(films);
+    }
+
+    public void indexFilm(FilmFacets film) {
+        indexFilms(List.of(film));
+    }
+
+    public synchronized void indexFilms(Collection<FilmFacets> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Changes genres = new Changes();
+        Changes ratings = new Changes();
+        Changes years = new Changes();
+        BitSet added = new BitSet();
+        for (FilmFacets film : films) {
+            FilmFacets current = facetsByFilm.put(film.filmId(), film);
+            if (current != null) {
+                for (int genreId : current.genreIds()) {
+                    genres.clear(genreId, film.filmId());
+                }
+                ratings.clear(current.mpaId(), film.filmId());
+                years.clear(current.year(), film.filmId());
+            }
+            for (int genreId : film.genreIds()) {
+                genres.set(genreId, film.filmId());
+            }
+            ratings.set(film.mpaId(), film.filmId());
+            years.set(film.year(), film.filmId());
+            added.set(film.filmId());
+        }
+        genres.applyTo(filmsByGenre);
+        ratings.applyTo(filmsByMpa);
+        years.applyTo(filmsByYear);
+        BitSet all = (BitSet) allFilms.clone();
+        all.or(added);
+        allFilms = all;
+    }
+
+    /**
+     * Ids of the films matching the filter; the result is the caller's own copy.
+     */
+    public BitSet filter(FilmFilter filter) {
+        BitSet result = (BitSet) allFilms.clone();
+        if (!filter.genreIds().isEmpty()) {
+            result.and(union(filmsByGenre, filter.genreIds()));
+        }
+        if (!filter.mpaIds().isEmpty()) {
+            result.and(union(filmsByMpa, filter.mpaIds()));
+        }
+        if (filter.yearFrom() != null || filter.yearTo() != null) {
+            int from = filter.yearFrom() == null ? Integer.MIN_VALUE : filter.yearFrom();
+            int to = filter.yearTo() == null ? Integer.MAX_VALUE : filter.yearTo();
+            BitSet years = new BitSet();
+            if (from <= to) {
+                filmsByYear.subMap(from, true, to, true).values().forEach(years::or);
+            }
+            result.and(years);
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} ids from the bitmap greater than {@code afterId}, ascending.
+     */
+    public static List<Integer> idsAfter(BitSet filmIds, int afterId, int limit) {
+        List<Integer> ids = new ArrayList<>(Math.min(limit, 1024));
+        for (int id = filmIds.nextSetBit(Math.max(0, afterId + 1)); id >= 0 && ids.size() < limit;
+             id = filmIds.nextSetBit(id + 1)) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static BitSet union(Map<Integer, BitSet> bitmaps, Collection<Integer> keys) {
+        BitSet result = new BitSet();
+        Set<Integer> distinct = new HashSet<>(keys);
+        for (Integer key : distinct) {
+            BitSet bitmap = key == null ? null : bitmaps.get(key);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Film facets as stored; a film without a release date has no year and never matches a year range.
+     */
+    public record FilmFacets(int filmId, int[] genreIds, int mpaId, LocalDate releaseDate) {
+
+        public FilmFacets {
+            genreIds = SortedIntArrays.sortedDistinct(genreIds == null ? SortedIntArrays.EMPTY : genreIds);
+        }
+
+        Integer year() {
+            return releaseDate == null ? null : releaseDate.getYear();
+        }
+    }
+
+    /**
+     * Bits to clear and to set per key; clearing goes first, so a film that keeps its key stays in it.
+     */
+    private static final class Changes {
+        private final Map<Integer, BitSet> cleared = new HashMap<>();
+        private final Map<Integer, BitSet> set = new HashMap<>();
+
+        void clear(Integer key, int filmId) {
+            if (key != null) {
+                cleared.computeIfAbsent(key, k -> new BitSet()).set(filmId);
+            }
+        }
+
+        void set(Integer key, int filmId) {
+            if (key != null) {
+                set.computeIfAbsent(key, k -> new BitSet()).set(filmId);
+            }
+        }
+
+        void applyTo(Map<Integer, BitSet> bitmaps) {
+            Set<Integer> keys = new HashSet<>(cleared.keySet());
+            keys.addAll(set.keySet());
+            for (Integer key : keys) {
+                bitmaps.compute(key, (k, current) -> {
+                    BitSet updated = current == null ? new BitSet() : (BitSet) current.clone();
+                    BitSet removed = cleared.get(k);
+                    if (removed != null) {
+                        updated.andNot(removed);
+                    }
+                    BitSet added = set.get(k);
+                    if (added != null) {
+                        updated.or(added);
+                    }
+                    return updated.isEmpty() ? null : updated;
+                });
+            }
+        }
+    }
+}
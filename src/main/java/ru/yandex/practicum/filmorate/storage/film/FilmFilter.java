@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Catalog filter: a film matches when it has any of the genres, any of the ratings and a release year in the range.
+ * An empty list or a missing bound does not restrict its facet.
+ */
+public record FilmFilter(List<Integer> genreIds, List<Integer> mpaIds, Integer yearFrom, Integer yearTo, Sort sort) {
+
+    public FilmFilter {
+        genreIds = genreIds == null ? List.of() : List.copyOf(genreIds);
+        mpaIds = mpaIds == null ? List.of() : List.copyOf(mpaIds);
+        sort = sort == null ? Sort.ID : sort;
+    }
+
+    public enum Sort {
+        ID, POPULAR;
+
+        public static Sort fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unknown sort: " + value + ".");
+            }
+        }
+    }
+}
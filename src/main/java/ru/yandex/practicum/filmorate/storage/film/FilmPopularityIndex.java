@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Films ordered by likes desc, id asc - the same order as {@code Film.compareTo}.
+ * Updates of one film are serialized by {@link ConcurrentHashMap#compute}, so concurrent likes never lose counts.
+ */
+@Component
+public class FilmPopularityIndex {
+
+    private final Map<Integer, Integer> likeCounts = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+
+    public void rebuild(Map<Integer, Integer> counts) {
+        likeCounts.clear();
+        ranking.clear();
+        counts.forEach((filmId, count) -> {
+            likeCounts.put(filmId, count);
+            ranking.add(new Entry(count, filmId));
+        });
+    }
+
+    public void addFilm(int filmId) {
+        likeCounts.computeIfAbsent(filmId, id -> {
+            ranking.add(new Entry(0, id));
+            return 0;
+        });
+    }
+
+    public void removeFilm(int filmId) {
+        likeCounts.computeIfPresent(filmId, (id, count) -> {
+            ranking.remove(new Entry(count, id));
+            return null;
+        });
+    }
+
+    public void incrementLikes(int filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void decrementLikes(int filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public void changeLikes(int filmId, int delta) {
+        likeCounts.compute(filmId, (id, count) -> {
+            int current = count == null ? 0 : count;
+            int updated = Math.max(0, current + delta);
+            ranking.add(new Entry(updated, id));
+            if (count != null && updated != current) {
+                ranking.remove(new Entry(current, id));
+            }
+            return updated;
+        });
+    }
+
+    public boolean contains(int filmId) {
+        return likeCounts.containsKey(filmId);
+    }
+
+    public int getLikeCount(int filmId) {
+        return likeCounts.getOrDefault(filmId, 0);
+    }
+
+    public List<Integer> getTop(int count) {
+        return walkRanking(count, filmId -> true);
+    }
+
+    /**
+     * The most popular films among the given ids.
+     * A dense selection is found by walking the ranking, which visits about count * films / matches entries;
+     * a sparse one is ranked on its own instead.
+     */
+    public List<Integer> getTop(int count, BitSet filmIds) {
+        int matches = filmIds.cardinality();
+        if (count <= 0 || matches == 0) {
+            return new ArrayList<>();
+        }
+        if ((long) count * likeCounts.size() / matches <= matches) {
+            return walkRanking(count, filmIds::get);
+        }
+        // the worst of the best films found so far is at the head
+        PriorityQueue<Entry> top = new PriorityQueue<>(Math.min(count, matches) + 1, Comparator.reverseOrder());
+        for (int filmId = filmIds.nextSetBit(0); filmId >= 0; filmId = filmIds.nextSetBit(filmId + 1)) {
+            Integer likeCount = likeCounts.get(filmId);
+            if (likeCount == null) {
+                continue;
+            }
+            Entry entry = new Entry(likeCount, filmId);
+            if (top.size() < count) {
+                top.add(entry);
+            } else if (entry.compareTo(top.peek()) < 0) {
+                top.poll();
+                top.add(entry);
+            }
+        }
+        return top.stream()
+                .sorted()
+                .map(Entry::filmId)
+                .toList();
+    }
+
+    private List<Integer> walkRanking(int count, IntPredicate filter) {
+        List<Integer> top = new ArrayList<>(Math.min(count, likeCounts.size()));
+        Set<Integer> seen = new HashSet<>();
+        Iterator<Entry> iterator = ranking.iterator();
+        while (top.size() < count && iterator.hasNext()) {
+            int filmId = iterator.next().filmId();
+            // a film being re-ranked is briefly present under both its old and new count
+            if (filter.test(filmId) && seen.add(filmId)) {
+                top.add(filmId);
+            }
+        }
+        return top;
+    }
+
+    private record Entry(int likeCount, int filmId) implements Comparable<Entry> {
+
+        @Override
+        public int compareTo(Entry o) {
+            int likeComparison = Integer.compare(o.likeCount, this.likeCount);
+            if (likeComparison != 0) {
+                return likeComparison;
+            }
+            return Integer.compare(this.filmId, o.filmId);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Inverted index over film names and descriptions. Text is split into runs of letters and digits, so Cyrillic
+ * and Latin words are handled alike, lower-cased and with 'ё' folded to 'е'.
+ * Every query word must match a word of the film exactly or as a prefix. A film scores the sum over the query words
+ * of the best matching term's idf times its weight in the film (a name occurrence counts three times a description
+ * one); prefix matches count half.
+ */
+@Component
+public class FilmSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MAX_PREFIX_TERMS = 256;
+
+    private final ConcurrentNavigableMap<String, Map<Integer, Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Map<String, Integer>> documents = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the index with the given films, tokenizing them in parallel.
+     */
+    public void rebuild(Collection<FilmText> films) {
+        postings.clear();
+        documents.clear();
+        films.parallelStream().forEach(film -> indexFilm(film.id(), film.name(), film.description()));
+    }
+
+    /**
+     * Adds the film or replaces its previous text.
+     */
+    public void indexFilm(int filmId, String name, String description) {
+        Map<String, Integer> terms = new HashMap<>();
+        tokenize(name).forEach(term -> terms.merge(term, NAME_WEIGHT, Integer::sum));
+        tokenize(description).forEach(term -> terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+        // compute serializes concurrent updates of the same film
+        documents.compute(filmId, (id, previous) -> {
+            if (previous != null) {
+                previous.keySet().forEach(term -> removePosting(term, filmId));
+            }
+            terms.forEach((term, weight) -> addPosting(term, filmId, weight));
+            return terms;
+        });
+    }
+
+    /**
+     * A postings map is only changed under its own lock and only while it is still in the index, so a term removed
+     * as empty never swallows a concurrent addition.
+     */
+    private void addPosting(String term, int filmId, int weight) {
+        while (true) {
+            Map<Integer, Integer> films = postings.computeIfAbsent(term, key -> new ConcurrentHashMap<>());
+            synchronized (films) {
+                if (postings.get(term) == films) {
+                    films.put(filmId, weight);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void removePosting(String term, int filmId) {
+        Map<Integer, Integer> films = postings.get(term);
+        if (films == null) {
+            return;
+        }
+        synchronized (films) {
+            films.remove(filmId);
+            // dead terms would otherwise count towards MAX_PREFIX_TERMS and hide real matches
+            if (films.isEmpty()) {
+                postings.remove(term, films);
+            }
+        }
+    }
+
+    /**
+     * Ids of up to {@code limit} films matching every word of the query, best first, ties by lower id.
+     */
+    public int[] search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        int filmCount = Math.max(1, documents.size());
+        Map<Integer, Double> scores = null;
+        for (String word : words.stream().distinct().toList()) {
+            Map<Integer, Double> wordScores = scoreWord(word, filmCount);
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                Map<Integer, Double> matched = wordScores;
+                scores.keySet().retainAll(matched.keySet());
+                scores.replaceAll((filmId, score) -> score + matched.get(filmId));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        // keep only the best limit films instead of sorting every match
+        Comparator<Map.Entry<Integer, Double>> ranking = Map.Entry.<Integer, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(Math.min(limit, scores.size()) + 1,
+                ranking.reversed());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            top.add(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        return top.stream()
+                .sorted(ranking)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    private Map<Integer, Double> scoreWord(String word, int filmCount) {
+        Map<Integer, Double> scores = new HashMap<>();
+        int expanded = 0;
+        for (Map.Entry<String, Map<Integer, Integer>> term : postings.tailMap(word).entrySet()) {
+            if (!term.getKey().startsWith(word) || expanded++ == MAX_PREFIX_TERMS) {
+                break;
+            }
+            Map<Integer, Integer> films = term.getValue();
+            if (films.isEmpty()) {
+                continue;
+            }
+            double idf = Math.log(1 + (double) filmCount / films.size());
+            double match = term.getKey().length() == word.length() ? 1 : 0.5;
+            films.forEach((filmId, weight) -> scores.merge(filmId, idf * weight * match, Math::max));
+        }
+        return scores;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int idx = 0; idx <= normalized.length(); idx++) {
+            boolean wordChar = idx < normalized.length() && Character.isLetterOrDigit(normalized.charAt(idx));
+            if (wordChar && start < 0) {
+                start = idx;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, idx));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public record FilmText(int id, String name, String description) {
+    }
+}
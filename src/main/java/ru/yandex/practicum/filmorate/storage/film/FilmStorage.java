@@ -1,20 +1,73 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.ExportSink;
+import ru.yandex.practicum.filmorate.storage.like.LikeChange;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface FilmStorage {
     Film addFilm(Film film);
 
+    /**
+     * Adds the films in one transaction, setting their ids.
+     */
+    List<Film> addFilms(List<Film> films);
+
+    /**
+     * Replaces the film and, unless they are null, its genres, and increments its version.
+     * A film carrying a version other than the stored one is rejected with an OptimisticLockingFailureException.
+     */
     Film updateFilm(Film film);
 
     Optional<Film> getFilmById(int id);
 
+    List<Film> getFilmsByIds(Collection<Integer> ids);
+
     List<Film> getAllFilms();
 
+    List<Film> getFilms(int afterId, int limit);
+
+    List<Film> getPopularFilms(int count);
+
+    boolean existsFilmById(int id);
+
     void addLike(int filmId, int userId);
 
     void removeLike(int filmId, int userId);
+
+    boolean existsLike(int filmId, int userId);
+
+    /**
+     * Applies the like changes in one transaction; adding an existing or removing a missing like is a no-op.
+     *
+     * @return the number of changes that took effect
+     */
+    int applyLikes(List<LikeChange> changes);
+
+    /**
+     * Ids of up to {@code limit} films recommended to the user by the likes of users with similar taste, best first.
+     */
+    int[] getRecommendedFilmIds(int userId, int limit);
+
+    /**
+     * Ids of up to {@code limit} films whose name or description matches the query, most relevant first.
+     */
+    int[] searchFilmIds(String query, int limit);
+
+    /**
+     * Up to {@code limit} films matching the filter in its order; {@code afterId} is the cursor of the id order.
+     */
+    List<Film> findFilms(FilmFilter filter, int afterId, int limit);
+
+    long getFilmVersion(int id);
+
+    long getPopularFilmsVersion();
+
+    /**
+     * Streams the films, film_genres and likes tables to the sink, all taken from one consistent snapshot.
+     */
+    void export(ExportSink sink);
 }
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory change counters for HTTP validators: one per film and one for the popular list.
+ * Storages bump them after a change is committed, so a version is never ahead of the data it describes.
+ */
+@Component
+public class FilmVersions {
+
+    private final Map<Integer, Long> filmVersions = new ConcurrentHashMap<>();
+    private final AtomicLong popularVersion = new AtomicLong();
+
+    public void filmAdded() {
+        popularVersion.incrementAndGet();
+    }
+
+    public void filmChanged(int filmId) {
+        filmVersions.merge(filmId, 1L, Long::sum);
+        popularVersion.incrementAndGet();
+    }
+
+    public long getFilmVersion(int filmId) {
+        return filmVersions.getOrDefault(filmId, 0L);
+    }
+
+    public long getPopularVersion() {
+        return popularVersion.get();
+    }
+}
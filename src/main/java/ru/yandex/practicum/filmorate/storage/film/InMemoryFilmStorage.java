@@ -0,0 +1,384 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+import ru.yandex.practicum.filmorate.storage.ExportSink;
+import ru.yandex.practicum.filmorate.storage.Journal;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeChange;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntArrays;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * FilmStorage kept entirely in memory, for deployments that trade the database for latency.
+ * Writes are serialized and go to the journal before they are applied; reads only touch the maps and never wait
+ * for a writer or the disk. Genres and ratings still come from their dictionary caches.
+ */
+@Slf4j
+@Repository
+@Profile("memory")
+public class InMemoryFilmStorage implements FilmStorage {
+
+    private final ConcurrentNavigableMap<Integer, FilmRow> films = new ConcurrentSkipListMap<>();
+    private final GenreDbStorage genreDbStorage;
+    private final MpaDbStorage mpaDbStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmVersions filmVersions;
+    private final LikeIndex likeIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmFacetIndex facetIndex;
+    private final Journal<FilmsSnapshot, FilmChange> journal;
+    private int lastId;
+
+    public InMemoryFilmStorage(@Value("${filmorate.memory.directory:./db/memory}") Path directory,
+                               @Value("${filmorate.memory.fsync:false}") boolean fsync,
+                               ObjectMapper objectMapper, GenreDbStorage genreDbStorage, MpaDbStorage mpaDbStorage,
+                               FilmPopularityIndex popularityIndex, FilmVersions filmVersions, LikeIndex likeIndex,
+                               FilmSearchIndex searchIndex, FilmFacetIndex facetIndex) {
+        this.genreDbStorage = genreDbStorage;
+        this.mpaDbStorage = mpaDbStorage;
+        this.popularityIndex = popularityIndex;
+        this.filmVersions = filmVersions;
+        this.likeIndex = likeIndex;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.journal = new Journal<>(directory, "films", objectMapper, FilmsSnapshot.class, FilmChange.class, fsync);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        likeIndex.rebuild(Map.of());
+        journal.replay(this::restore, this::apply);
+        Map<Integer, Integer> counts = new HashMap<>();
+        films.keySet().forEach(filmId -> counts.put(filmId, getLikeIds(filmId).length));
+        popularityIndex.rebuild(counts);
+        searchIndex.rebuild(films.values().stream()
+                .map(row -> new FilmSearchIndex.FilmText(row.id(), row.name(), row.description()))
+                .toList());
+        facetIndex.rebuild(films.values().stream()
+                .map(FilmRow::toFacets)
+                .toList());
+        log.info("Loaded {} films into memory", films.size());
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.memory.snapshot-interval-ms:60000}",
+            fixedDelayString = "${filmorate.memory.snapshot-interval-ms:60000}")
+    public void writeSnapshot() {
+        long seq;
+        FilmsSnapshot snapshot;
+        synchronized (this) {
+            if (!journal.hasChangesSinceSnapshot()) {
+                return;
+            }
+            seq = journal.rollover();
+            snapshot = new FilmsSnapshot(lastId, List.copyOf(films.values()), likeIndex.getUserIdsByFilm());
+        }
+        journal.writeSnapshot(seq, snapshot);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeSnapshot();
+        journal.close();
+    }
+
+    @Override
+    public synchronized Film addFilm(Film film) {
+        facetIndex.indexFilm(insert(film).toFacets());
+        return film;
+    }
+
+    @Override
+    public synchronized List<Film> addFilms(List<Film> films) {
+        // facet bitmaps are copied on change, so they are updated once for the whole batch
+        facetIndex.indexFilms(films.stream()
+                .map(film -> insert(film).toFacets())
+                .toList());
+        return films;
+    }
+
+    @Override
+    public synchronized Film updateFilm(Film film) {
+        FilmRow current = films.get(film.getId());
+        if (current == null) {
+            throw new NoSuchElementException("Film with ID " + film.getId() + " not found.");
+        }
+        if (film.getVersion() != null && film.getVersion() != current.version()) {
+            throw new OptimisticLockingFailureException("Film with ID " + film.getId()
+                    + " was changed by another update, expected version " + film.getVersion() + ".");
+        }
+        int[] genreIds = film.getGenres() == null ? current.genreIds() : genreIds(film);
+        FilmRow row = new FilmRow(current.id(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getMpa().getId(), genreIds, current.version() + 1);
+        write(new FilmChange(FilmChange.Type.UPDATE_FILM, row, row.id(), 0));
+        film.setVersion(row.version());
+        searchIndex.indexFilm(row.id(), row.name(), row.description());
+        facetIndex.indexFilm(row.toFacets());
+        filmVersions.filmChanged(film.getId());
+        return toFilm(row);
+    }
+
+    @Override
+    public Optional<Film> getFilmById(int id) {
+        return Optional.ofNullable(films.get(id)).map(this::toFilm);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        ids.stream()
+                .distinct()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .forEach(row -> result.add(toFilm(row)));
+        return result;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return films.values().stream()
+                .map(this::toFilm)
+                .toList();
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(this::toFilm)
+                .toList();
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getFilmsByIds(popularityIndex.getTop(count));
+    }
+
+    @Override
+    public boolean existsFilmById(int id) {
+        return films.containsKey(id);
+    }
+
+    @Override
+    public synchronized void addLike(int filmId, int userId) {
+        if (!films.containsKey(filmId)) {
+            throw new NoSuchElementException("Film with ID " + filmId + " not found.");
+        }
+        if (existsLike(filmId, userId)) {
+            return;
+        }
+        write(new FilmChange(FilmChange.Type.ADD_LIKE, null, filmId, userId));
+        popularityIndex.incrementLikes(filmId);
+        filmVersions.filmChanged(filmId);
+    }
+
+    @Override
+    public synchronized void removeLike(int filmId, int userId) {
+        if (!existsLike(filmId, userId)) {
+            return;
+        }
+        write(new FilmChange(FilmChange.Type.REMOVE_LIKE, null, filmId, userId));
+        popularityIndex.decrementLikes(filmId);
+        filmVersions.filmChanged(filmId);
+    }
+
+    @Override
+    public boolean existsLike(int filmId, int userId) {
+        return SortedIntArrays.contains(getLikeIds(filmId), userId);
+    }
+
+    @Override
+    public synchronized int applyLikes(List<LikeChange> changes) {
+        // all or nothing, like the transaction of the database engine
+        changes.stream()
+                .filter(change -> !films.containsKey(change.filmId()))
+                .findFirst()
+                .ifPresent(change -> {
+                    throw new NoSuchElementException("Film with ID " + change.filmId() + " not found.");
+                });
+        int applied = 0;
+        for (LikeChange change : changes) {
+            if (existsLike(change.filmId(), change.userId()) == change.added()) {
+                continue;
+            }
+            if (change.added()) {
+                addLike(change.filmId(), change.userId());
+            } else {
+                removeLike(change.filmId(), change.userId());
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Ids of the films the user liked, ascending.
+     */
+    public int[] getLikedFilmIds(int userId) {
+        return likeIndex.getFilmIds(userId);
+    }
+
+    @Override
+    public int[] getRecommendedFilmIds(int userId, int limit) {
+        return likeIndex.recommend(userId, limit);
+    }
+
+    @Override
+    public int[] searchFilmIds(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, int afterId, int limit) {
+        BitSet matches = facetIndex.filter(filter);
+        return getFilmsByIds(filter.sort() == FilmFilter.Sort.POPULAR
+                ? popularityIndex.getTop(limit, matches)
+                : FilmFacetIndex.idsAfter(matches, afterId, limit));
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        return filmVersions.getFilmVersion(id);
+    }
+
+    @Override
+    public long getPopularFilmsVersion() {
+        return filmVersions.getPopularVersion();
+    }
+
+    @Override
+    public void export(ExportSink sink) {
+        List<FilmRow> rows;
+        Map<Integer, int[]> likes;
+        synchronized (this) {
+            // rows and like arrays are never modified in place, copying the references is enough
+            rows = List.copyOf(films.values());
+            likes = likeIndex.getUserIdsByFilm();
+        }
+        String[] filmColumns = {"id", "name", "description", "release_date", "duration", "rating_id"};
+        for (FilmRow row : rows) {
+            sink.row("films", filmColumns, new Object[]{row.id(), row.name(), row.description(), row.releaseDate(),
+                    row.duration(), row.mpaId()});
+        }
+        String[] genreColumns = {"film_id", "genre_id"};
+        for (FilmRow row : rows) {
+            for (int genreId : row.genreIds()) {
+                sink.row("film_genres", genreColumns, new Object[]{row.id(), genreId});
+            }
+        }
+        String[] likeColumns = {"user_id", "film_id"};
+        for (FilmRow row : rows) {
+            for (int userId : likes.getOrDefault(row.id(), SortedIntArrays.EMPTY)) {
+                sink.row("likes", likeColumns, new Object[]{userId, row.id()});
+            }
+        }
+    }
+
+    private FilmRow insert(Film film) {
+        FilmRow row = new FilmRow(lastId + 1, film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getMpa().getId(), genreIds(film), 0);
+        write(new FilmChange(FilmChange.Type.ADD_FILM, row, row.id(), 0));
+        film.setId(row.id());
+        film.setVersion(row.version());
+        popularityIndex.addFilm(row.id());
+        searchIndex.indexFilm(row.id(), row.name(), row.description());
+        filmVersions.filmAdded();
+        return row;
+    }
+
+    private void write(FilmChange change) {
+        journal.append(change);
+        apply(change);
+    }
+
+    private void restore(FilmsSnapshot snapshot) {
+        lastId = snapshot.lastId();
+        snapshot.films().forEach(row -> films.put(row.id(), row));
+        likeIndex.rebuild(snapshot.likes());
+    }
+
+    private void apply(FilmChange change) {
+        int filmId = change.filmId();
+        int userId = change.userId();
+        switch (change.type()) {
+            case ADD_FILM, UPDATE_FILM -> {
+                films.put(filmId, change.film());
+                lastId = Math.max(lastId, filmId);
+            }
+            case ADD_LIKE -> likeIndex.addLike(filmId, userId);
+            case REMOVE_LIKE -> likeIndex.removeLike(filmId, userId);
+        }
+    }
+
+    private static int[] genreIds(Film film) {
+        return SortedIntArrays.sortedDistinct(film.getGenres() == null ? SortedIntArrays.EMPTY
+                : film.getGenres().stream().mapToInt(Genre::getId).toArray());
+    }
+
+    private Film toFilm(FilmRow row) {
+        int[] likeIds = getLikeIds(row.id());
+        List<Genre> genres = new ArrayList<>(row.genreIds().length);
+        for (int genreId : row.genreIds()) {
+            genreDbStorage.getById(genreId).ifPresent(genres::add);
+        }
+        return Film.builder()
+                .id(row.id())
+                .name(row.name())
+                .description(row.description())
+                .releaseDate(row.releaseDate())
+                .duration(row.duration())
+                .genres(genres)
+                .likes(LikeSet.of(likeIds))
+                .likeCount(likeIds.length)
+                .mpa(mpaDbStorage.getById(row.mpaId()).orElse(null))
+                .version(row.version())
+                .build();
+    }
+
+    private int[] getLikeIds(int filmId) {
+        return likeIndex.getUserIds(filmId);
+    }
+
+    record FilmRow(int id, String name, String description, LocalDate releaseDate, int duration, int mpaId,
+                   int[] genreIds, long version) {
+
+        FilmFacetIndex.FilmFacets toFacets() {
+            return new FilmFacetIndex.FilmFacets(id, genreIds, mpaId, releaseDate);
+        }
+    }
+
+    record FilmChange(Type type, FilmRow film, int filmId, int userId) {
+
+        enum Type {
+            ADD_FILM, UPDATE_FILM, ADD_LIKE, REMOVE_LIKE
+        }
+    }
+
+    record FilmsSnapshot(int lastId, List<FilmRow> films, Map<Integer, int[]> likes) {
+    }
+}
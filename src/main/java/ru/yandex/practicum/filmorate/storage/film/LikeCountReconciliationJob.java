@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@Profile("!memory")
+@RequiredArgsConstructor
+public class LikeCountReconciliationJob {
+
+    private final FilmDbStorage filmDbStorage;
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconcile-interval-ms:600000}",
+            fixedDelayString = "${filmorate.likes.reconcile-interval-ms:600000}")
+    public void reconcileLikeCounts() {
+        int repaired = filmDbStorage.reconcileLikeCounts();
+        if (repaired > 0) {
+            log.warn("Repaired like_count drift for {} films", repaired);
+        }
+    }
+}
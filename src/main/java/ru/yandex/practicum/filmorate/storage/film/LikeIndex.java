@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.SortedIntArrays;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory copy of the likes table in both directions: for every film the sorted ids of the users who liked it,
+ * for every user the sorted ids of the films they liked. Each list is replaced as a whole on change,
+ * so readers always see a consistent snapshot of it.
+ */
+@Component
+public class LikeIndex {
+    private static final int NEIGHBOURS = 20;
+
+    private final Map<Integer, int[]> userIdsByFilm = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> filmIdsByUser = new ConcurrentHashMap<>();
+
+    public void rebuild(Map<Integer, int[]> userIdsByFilm) {
+        this.userIdsByFilm.clear();
+        filmIdsByUser.clear();
+        Map<Integer, IntStream.Builder> filmIds = new HashMap<>();
+        userIdsByFilm.forEach((filmId, userIds) -> {
+            int[] sorted = SortedIntArrays.sortedDistinct(userIds);
+            if (sorted.length == 0) {
+                return;
+            }
+            this.userIdsByFilm.put(filmId, sorted);
+            for (int userId : sorted) {
+                filmIds.computeIfAbsent(userId, id -> IntStream.builder()).add(filmId);
+            }
+        });
+        filmIds.forEach((userId, ids) -> filmIdsByUser.put(userId, SortedIntArrays.sortedDistinct(ids.build().toArray())));
+    }
+
+    public void addLike(int filmId, int userId) {
+        userIdsByFilm.compute(filmId, (id, current) ->
+                SortedIntArrays.add(current == null ? SortedIntArrays.EMPTY : current, userId));
+        filmIdsByUser.compute(userId, (id, current) ->
+                SortedIntArrays.add(current == null ? SortedIntArrays.EMPTY : current, filmId));
+    }
+
+    public void removeLike(int filmId, int userId) {
+        userIdsByFilm.computeIfPresent(filmId, (id, current) -> emptyToNull(SortedIntArrays.remove(current, userId)));
+        filmIdsByUser.computeIfPresent(userId, (id, current) -> emptyToNull(SortedIntArrays.remove(current, filmId)));
+    }
+
+    public int[] getUserIds(int filmId) {
+        return userIdsByFilm.getOrDefault(filmId, SortedIntArrays.EMPTY);
+    }
+
+    public int[] getFilmIds(int userId) {
+        return filmIdsByUser.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    public Map<Integer, int[]> getUserIdsByFilm() {
+        return Map.copyOf(userIdsByFilm);
+    }
+
+    /**
+     * Films the user has not liked yet, taken from the users whose likes overlap most with theirs.
+     * A film scores the summed overlap of those users who liked it; ties go to the lower id.
+     */
+    public int[] recommend(int userId, int limit) {
+        int[] liked = getFilmIds(userId);
+        if (liked.length == 0 || limit <= 0) {
+            return SortedIntArrays.EMPTY;
+        }
+        // only users who share at least one like can overlap
+        BitSet candidates = new BitSet();
+        for (int filmId : liked) {
+            for (int otherId : getUserIds(filmId)) {
+                candidates.set(otherId);
+            }
+        }
+        candidates.clear(userId);
+        List<Neighbour> neighbours = Arrays.stream(candidates.stream().toArray())
+                .parallel()
+                .mapToObj(otherId -> new Neighbour(otherId,
+                        SortedIntArrays.intersectionSize(liked, getFilmIds(otherId))))
+                .sorted(Comparator.comparingInt(Neighbour::overlap).reversed()
+                        .thenComparingInt(Neighbour::userId))
+                .limit(NEIGHBOURS)
+                .toList();
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Neighbour neighbour : neighbours) {
+            for (int filmId : getFilmIds(neighbour.userId())) {
+                if (!SortedIntArrays.contains(liked, filmId)) {
+                    scores.merge(filmId, neighbour.overlap(), Integer::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    private static int[] emptyToNull(int[] ids) {
+        return ids.length == 0 ? null : ids;
+    }
+
+    private record Neighbour(int userId, int overlap) {
+    }
+}
@@ -1,5 +1,8 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -7,25 +10,35 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
 @Primary
-public class GenreDbStorage extends BaseDbStorage<Genre> {
+public class GenreDbStorage extends BaseDbStorage<Genre> implements MeterBinder {
 
-    public GenreDbStorage(JdbcTemplate jdbc, RowMapper<Genre> mapper) {
-        super(jdbc, mapper);
+    private DictionaryCache<Genre> cache;
+
+    public GenreDbStorage(JdbcTemplate jdbc, RowMapper<Genre> mapper, QueryMetrics queryMetrics) {
+        super(jdbc, mapper, queryMetrics);
+    }
+
+    /**
+     * Built here rather than in the constructor so the loader does not capture a partly constructed storage.
+     */
+    @PostConstruct
+    public void loadCache() {
+        cache = new DictionaryCache<>("genres", this::loadAll, Genre::getId,
+                genre -> new Genre(genre.getId(), genre.getName()));
+        cache.load();
     }
 
     public List<Genre> findAll() {
-        String query = """
-                SELECT *
-                FROM genres""";
-        return findMany(query);
+        return cache.getAll();
     }
 
     public List<Genre> getGenresByFilmId(long id) {
@@ -39,25 +52,34 @@ public class GenreDbStorage extends BaseDbStorage<Genre> {
                 WHERE
                     fg.film_id = ?
                 """;
-        return findMany(query, id);
+        return findMany("genre.getByFilmId", query, id);
     }
 
-
     public Optional<Genre> getById(long id) {
-        String query = """
-                SELECT *
-                FROM   genres
-                WHERE  id = ?""";
-        return findOne(query, id);
+        if (id < Integer.MIN_VALUE || id > Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+        return cache.get((int) id);
+    }
+
+    public long getVersion() {
+        return cache.getVersion();
     }
 
     public boolean existsGenresByIds(List<Integer> ids) {
-        String placeholders = ids.stream()
-                .map(id -> "?")
-                .collect(Collectors.joining(","));
+        return cache.containsAll(ids);
+    }
 
-        String query = String.format("SELECT COUNT(*) FROM genres WHERE id IN (%s)", placeholders);
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class, ids.toArray());
-        return count != null && count == ids.size();
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry);
+    }
+
+    private List<Genre> loadAll() {
+        String query = """
+                SELECT *
+                FROM genres
+                ORDER BY id""";
+        return findMany("genre.getAll", query);
     }
 }
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+public record LikeChange(int filmId, int userId, boolean added) {
+
+    public long key() {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Optional asynchronous like pipeline. Changes are coalesced per (film, user) pair - the latest one wins -
+ * and handed to the writer in batches when {@code batch-size} pairs are pending or every {@code flush-interval-ms}.
+ * Producers block for up to {@code enqueue-timeout-ms} when {@code queue-capacity} pairs are pending.
+ * A batch the database rejects is retried change by change: changes violating a constraint are dropped,
+ * any other failure leaves them pending and the flusher backs off exponentially before the next attempt.
+ */
+@Slf4j
+@Component
+public class LikeWriteBehindBuffer {
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long enqueueTimeoutMs;
+    private final Semaphore capacity;
+    private final Map<Long, LikeChange> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile ScheduledExecutorService executor;
+    private volatile Consumer<List<LikeChange>> writer;
+    // touched only by the single flusher thread
+    private int failedFlushes;
+    private long retryAt;
+
+    public LikeWriteBehindBuffer(@Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                                 @Value("${filmorate.likes.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                                 @Value("${filmorate.likes.write-behind.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${filmorate.likes.write-behind.enqueue-timeout-ms:1000}") long enqueueTimeoutMs) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.capacity = new Semaphore(queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void start(Consumer<List<LikeChange>> writer) {
+        if (!enabled || executor != null) {
+            return;
+        }
+        this.writer = writer;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Like write-behind started: batchSize={}, flushIntervalMs={}", batchSize, flushIntervalMs);
+    }
+
+    public void enqueue(LikeChange change) {
+        if (pending.replace(change.key(), change) == null) {
+            put(change);
+        }
+        ScheduledExecutorService current = executor;
+        if (current != null && pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            current.execute(this::flushQuietly);
+        }
+    }
+
+    public Optional<Boolean> getPendingLike(int filmId, int userId) {
+        LikeChange change = pending.get(new LikeChange(filmId, userId, true).key());
+        return change == null ? Optional.empty() : Optional.of(change.added());
+    }
+
+    public synchronized void flush() {
+        flushRequested.set(false);
+        int rounds = pending.size() / batchSize + 1;
+        for (int round = 0; round < rounds && !pending.isEmpty(); round++) {
+            List<LikeChange> batch = pending.values().stream()
+                    .limit(batchSize)
+                    .toList();
+            try {
+                writer.accept(batch);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to write {} likes as a batch, writing them one by one: {}", batch.size(),
+                        ex.getMessage());
+                writeOneByOne(batch);
+                continue;
+            }
+            written(batch);
+        }
+    }
+
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Like write-behind flusher did not stop in time");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+            log.info("Like write-behind stopped, pending likes flushed");
+        } catch (RuntimeException ex) {
+            log.error("Like write-behind stopped, {} pending likes were not written", pending.size(), ex);
+        }
+    }
+
+    private void writeOneByOne(List<LikeChange> batch) {
+        for (LikeChange change : batch) {
+            try {
+                writer.accept(List.of(change));
+            } catch (DataIntegrityViolationException ex) {
+                // the film or the user is gone, retrying cannot succeed
+                log.warn("Dropping like change {} rejected by the database: {}", change, ex.getMessage());
+            }
+            written(List.of(change));
+        }
+    }
+
+    private void written(List<LikeChange> changes) {
+        for (LikeChange change : changes) {
+            // a newer change for the same pair stays pending for the next flush
+            if (pending.remove(change.key(), change)) {
+                capacity.release();
+            }
+        }
+    }
+
+    private void put(LikeChange change) {
+        try {
+            if (!capacity.tryAcquire(enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Like queue is full, try again later");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for like queue", ex);
+        }
+        if (pending.put(change.key(), change) != null) {
+            // the pair was enqueued concurrently and already holds a permit
+            capacity.release();
+        }
+    }
+
+    private void flushQuietly() {
+        if (failedFlushes > 0 && System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        try {
+            flush();
+            if (failedFlushes > 0) {
+                log.info("Like write-behind recovered after {} failed flushes", failedFlushes);
+                failedFlushes = 0;
+            }
+        } catch (RuntimeException ex) {
+            failedFlushes++;
+            long delay = Math.min(MAX_RETRY_DELAY_MS, flushIntervalMs << Math.min(failedFlushes, 20));
+            retryAt = System.currentTimeMillis() + delay;
+            if (failedFlushes == 1) {
+                log.error("Failed to flush {} pending likes, will retry in {} ms", pending.size(), delay, ex);
+            } else {
+                log.warn("Flush of {} pending likes failed {} times, will retry in {} ms: {}", pending.size(),
+                        failedFlushes, delay, ex.getMessage());
+            }
+        }
+    }
+}
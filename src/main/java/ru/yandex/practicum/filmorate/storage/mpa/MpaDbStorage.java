@@ -1,5 +1,8 @@
 package ru.yandex.practicum.filmorate.storage.mpa;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -7,38 +10,63 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
 @Repository
 @Primary
-public class MpaDbStorage extends BaseDbStorage<Mpa> {
+public class MpaDbStorage extends BaseDbStorage<Mpa> implements MeterBinder {
 
-    public MpaDbStorage(JdbcTemplate jdbc, RowMapper<Mpa> mapper) {
-        super(jdbc, mapper);
+    private DictionaryCache<Mpa> cache;
+
+    public MpaDbStorage(JdbcTemplate jdbc, RowMapper<Mpa> mapper, QueryMetrics queryMetrics) {
+        super(jdbc, mapper, queryMetrics);
+    }
+
+    /**
+     * The cache's loader refers to this storage, so it is created once construction has finished.
+     */
+    @PostConstruct
+    public void loadCache() {
+        cache = new DictionaryCache<>("ratings", this::loadAll, Mpa::getId,
+                mpa -> new Mpa(mpa.getId(), mpa.getName()));
+        cache.load();
     }
 
     public Collection<Mpa> findAll() {
-        String query = """
-                SELECT *
-                FROM ratings""";
-        return findMany(query);
+        return cache.getAll();
     }
 
     public Optional<Mpa> getById(long id) {
-        String query = """
-                SELECT *
-                FROM   ratings
-                WHERE  id = ?""";
-        return findOne(query, id);
+        if (id < Integer.MIN_VALUE || id > Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+        return cache.get((int) id);
+    }
+
+    public long getVersion() {
+        return cache.getVersion();
     }
 
     public boolean existsMpaById(int id) {
-        String query = "SELECT COUNT(*) FROM ratings WHERE id=?";
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class, id);
-        return count != null && count > 0;
+        return cache.get(id).isPresent();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry);
     }
 
+    private List<Mpa> loadAll() {
+        String query = """
+                SELECT *
+                FROM ratings
+                ORDER BY id""";
+        return findMany("mpa.getAll", query);
+    }
 }
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+
+public record Friendship(int userId, int friendId, FriendshipStatus status) {
+}
@@ -0,0 +1,308 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExportSink;
+import ru.yandex.practicum.filmorate.storage.Journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.IntStream;
+
+/**
+ * UserStorage kept entirely in memory, the counterpart of {@code InMemoryFilmStorage}.
+ * Friend lists live in the {@link SocialGraphIndex}, their statuses in a map keyed by the (user, friend) pair.
+ */
+@Slf4j
+@Repository
+@Profile("memory")
+public class InMemoryUserStorage implements UserStorage {
+
+    private final ConcurrentNavigableMap<Integer, UserRow> users = new ConcurrentSkipListMap<>();
+    private final Map<Long, FriendshipStatus> friendships = new ConcurrentHashMap<>();
+    private final SocialGraphIndex socialGraphIndex;
+    private final Journal<UsersSnapshot, UserChange> journal;
+    private int lastId;
+
+    public InMemoryUserStorage(@Value("${filmorate.memory.directory:./db/memory}") Path directory,
+                               @Value("${filmorate.memory.fsync:false}") boolean fsync,
+                               ObjectMapper objectMapper, SocialGraphIndex socialGraphIndex) {
+        this.socialGraphIndex = socialGraphIndex;
+        this.journal = new Journal<>(directory, "users", objectMapper, UsersSnapshot.class, UserChange.class, fsync);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        socialGraphIndex.rebuild(Map.of(), Map.of());
+        journal.replay(this::restore, this::apply);
+        log.info("Loaded {} users and {} friendships into memory", users.size(), friendships.size());
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.memory.snapshot-interval-ms:60000}",
+            fixedDelayString = "${filmorate.memory.snapshot-interval-ms:60000}")
+    public void writeSnapshot() {
+        long seq;
+        UsersSnapshot snapshot;
+        synchronized (this) {
+            if (!journal.hasChangesSinceSnapshot()) {
+                return;
+            }
+            seq = journal.rollover();
+            List<Friendship> friends = new ArrayList<>(friendships.size());
+            friendships.forEach((key, status) ->
+                    friends.add(new Friendship((int) (key >> 32), key.intValue(), status)));
+            snapshot = new UsersSnapshot(lastId, List.copyOf(users.values()), friends);
+        }
+        journal.writeSnapshot(seq, snapshot);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeSnapshot();
+        journal.close();
+    }
+
+    @Override
+    public synchronized User addUser(User user) {
+        UserRow row = new UserRow(lastId + 1, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        write(new UserChange(UserChange.Type.ADD_USER, row, null));
+        user.setId(row.id());
+        return user;
+    }
+
+    @Override
+    public synchronized List<User> addUsers(List<User> users) {
+        users.forEach(this::addUser);
+        return users;
+    }
+
+    @Override
+    public synchronized User updateUser(User user) {
+        if (!users.containsKey(user.getId())) {
+            throw new NoSuchElementException("User with ID " + user.getId() + " not found.");
+        }
+        UserRow row = new UserRow(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        write(new UserChange(UserChange.Type.UPDATE_USER, row, null));
+        return user;
+    }
+
+    @Override
+    public Optional<User> getUserById(int id) {
+        return Optional.ofNullable(users.get(id)).map(UserRow::toUser);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return users.values().stream()
+                .map(UserRow::toUser)
+                .toList();
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        return ids.stream()
+                .distinct()
+                .sorted()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(UserRow::toUser)
+                .toList();
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(UserRow::toUser)
+                .toList();
+    }
+
+    @Override
+    public synchronized void addFriend(int userId, int friendId) {
+        if (friendships.containsKey(key(userId, friendId))) {
+            throw new DuplicateKeyException("User " + userId + " has already sent a request to " + friendId);
+        }
+        write(new UserChange(UserChange.Type.ADD_FRIEND, null,
+                new Friendship(userId, friendId, FriendshipStatus.PENDING)));
+    }
+
+    @Override
+    public synchronized void confirmedFriend(int userId, int friendId) {
+        if (!friendships.containsKey(key(userId, friendId))) {
+            return;
+        }
+        write(new UserChange(UserChange.Type.CONFIRM_FRIEND, null,
+                new Friendship(userId, friendId, FriendshipStatus.CONFIRMED)));
+    }
+
+    @Override
+    public synchronized void addFriendships(List<Friendship> friendships) {
+        for (Friendship friendship : friendships) {
+            if (!users.containsKey(friendship.userId()) || !users.containsKey(friendship.friendId())) {
+                throw new NoSuchElementException("User not found");
+            }
+        }
+        friendships.forEach(friendship -> write(new UserChange(UserChange.Type.ADD_FRIEND, null, friendship)));
+    }
+
+    @Override
+    public Optional<String> getFriendshipStatus(int userId, int friendId) {
+        return Optional.ofNullable(friendships.get(key(userId, friendId))).map(FriendshipStatus::toString);
+    }
+
+    @Override
+    public synchronized void removeFriend(int userId, int friendId) {
+        if (!friendships.containsKey(key(userId, friendId))) {
+            return;
+        }
+        write(new UserChange(UserChange.Type.REMOVE_FRIEND, null, new Friendship(userId, friendId, null)));
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return toUsers(socialGraphIndex.getFriendIds(userId));
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        return toUsers(socialGraphIndex.getCommonFriendIds(userId, otherId));
+    }
+
+    @Override
+    public int[] getSuggestedFriendIds(int userId, int limit) {
+        return socialGraphIndex.suggestFriendIds(userId, limit);
+    }
+
+    @Override
+    public boolean existsUserById(int id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public boolean existsFriendByIds(int userId, int friendId) {
+        return friendships.containsKey(key(userId, friendId));
+    }
+
+    @Override
+    public void export(ExportSink sink) {
+        List<UserRow> rows;
+        List<Friendship> friends = new ArrayList<>();
+        synchronized (this) {
+            rows = List.copyOf(users.values());
+            friendships.forEach((key, status) ->
+                    friends.add(new Friendship((int) (key >> 32), key.intValue(), status)));
+        }
+        String[] userColumns = {"id", "email", "login", "name", "birthday"};
+        for (UserRow row : rows) {
+            sink.row("users", userColumns, new Object[]{row.id(), row.email(), row.login(), row.name(),
+                    row.birthday()});
+        }
+        friends.sort(Comparator.comparingInt(Friendship::userId).thenComparingInt(Friendship::friendId));
+        String[] friendColumns = {"user_id", "friend_id", "status"};
+        for (Friendship friend : friends) {
+            sink.row("friends", friendColumns, new Object[]{friend.userId(), friend.friendId(),
+                    friend.status().name()});
+        }
+    }
+
+    private void write(UserChange change) {
+        journal.append(change);
+        apply(change);
+    }
+
+    private void restore(UsersSnapshot snapshot) {
+        lastId = snapshot.lastId();
+        snapshot.users().forEach(row -> users.put(row.id(), row));
+        Map<Integer, IntStream.Builder> friendIds = new HashMap<>();
+        Map<Integer, IntStream.Builder> confirmedFriendIds = new HashMap<>();
+        snapshot.friends().forEach(friend -> {
+            friendships.put(key(friend.userId(), friend.friendId()), friend.status());
+            friendIds.computeIfAbsent(friend.userId(), id -> IntStream.builder()).add(friend.friendId());
+            if (friend.status() == FriendshipStatus.CONFIRMED) {
+                confirmedFriendIds.computeIfAbsent(friend.userId(), id -> IntStream.builder()).add(friend.friendId());
+            }
+        });
+        socialGraphIndex.rebuild(build(friendIds), build(confirmedFriendIds));
+    }
+
+    private void apply(UserChange change) {
+        Friendship friend = change.friend();
+        switch (change.type()) {
+            case ADD_USER, UPDATE_USER -> {
+                users.put(change.user().id(), change.user());
+                lastId = Math.max(lastId, change.user().id());
+            }
+            case ADD_FRIEND -> {
+                friendships.put(key(friend.userId(), friend.friendId()), friend.status());
+                socialGraphIndex.addFriend(friend.userId(), friend.friendId(), friend.status());
+            }
+            case CONFIRM_FRIEND -> {
+                friendships.put(key(friend.userId(), friend.friendId()), friend.status());
+                socialGraphIndex.confirmFriend(friend.userId(), friend.friendId());
+            }
+            case REMOVE_FRIEND -> {
+                friendships.remove(key(friend.userId(), friend.friendId()));
+                socialGraphIndex.removeFriend(friend.userId(), friend.friendId());
+            }
+        }
+    }
+
+    private List<User> toUsers(int[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        Arrays.stream(ids)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .forEach(row -> result.add(row.toUser()));
+        return result;
+    }
+
+    private static Map<Integer, int[]> build(Map<Integer, IntStream.Builder> builders) {
+        Map<Integer, int[]> ids = new HashMap<>();
+        builders.forEach((userId, builder) -> ids.put(userId, builder.build().toArray()));
+        return ids;
+    }
+
+    private static long key(int userId, int friendId) {
+        return ((long) userId << 32) | (friendId & 0xFFFFFFFFL);
+    }
+
+    record UserRow(int id, String email, String login, String name, LocalDate birthday) {
+
+        User toUser() {
+            return new User(id, email, login, name, birthday);
+        }
+    }
+
+    record UserChange(Type type, UserRow user, Friendship friend) {
+
+        enum Type {
+            ADD_USER, UPDATE_USER, ADD_FRIEND, CONFIRM_FRIEND, REMOVE_FRIEND
+        }
+    }
+
+    record UsersSnapshot(int lastId, List<UserRow> users, List<Friendship> friends) {
+    }
+}
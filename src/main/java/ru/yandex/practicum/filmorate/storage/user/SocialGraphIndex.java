@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.util.SortedIntArrays;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory copy of the friends table: for every user the sorted ids of the users in their friend list,
+ * of the users who have them in theirs, and of those among the latter whose request they confirmed.
+ * Each list is replaced as a whole on change, so readers always see a consistent snapshot.
+ */
+@Component
+public class SocialGraphIndex {
+    private static final int MAX_SCANNED_CONTACTS = 200_000;
+    private static final int MAX_SCANNED_PER_CONTACT = 10_000;
+
+    private final Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> requesters = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> confirmedRequesters = new ConcurrentHashMap<>();
+
+    /**
+     * @param friendIdsByUser          friend list of every user
+     * @param confirmedFriendIdsByUser the part of each friend list with a confirmed status
+     */
+    public void rebuild(Map<Integer, int[]> friendIdsByUser, Map<Integer, int[]> confirmedFriendIdsByUser) {
+        friends.clear();
+        friendIdsByUser.forEach((userId, friendIds) -> friends.put(userId, SortedIntArrays.sortedDistinct(friendIds)));
+        invert(friends, requesters);
+        invert(confirmedFriendIdsByUser, confirmedRequesters);
+    }
+
+    public void addFriend(int userId, int friendId) {
+        addFriend(userId, friendId, FriendshipStatus.PENDING);
+    }
+
+    public void addFriend(int userId, int friendId, FriendshipStatus status) {
+        friends.compute(userId, (id, current) -> add(current, friendId));
+        requesters.compute(friendId, (id, current) -> add(current, userId));
+        if (status == FriendshipStatus.CONFIRMED) {
+            confirmFriend(userId, friendId);
+        } else {
+            confirmedRequesters.computeIfPresent(friendId, (id, current) -> remove(current, userId));
+        }
+    }
+
+    public void confirmFriend(int userId, int friendId) {
+        confirmedRequesters.compute(friendId, (id, current) -> add(current, userId));
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        friends.computeIfPresent(userId, (id, current) -> remove(current, friendId));
+        requesters.computeIfPresent(friendId, (id, current) -> remove(current, userId));
+        confirmedRequesters.computeIfPresent(friendId, (id, current) -> remove(current, userId));
+    }
+
+    public int[] getFriendIds(int userId) {
+        return friends.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    public int[] getCommonFriendIds(int userId, int otherId) {
+        return SortedIntArrays.intersect(getFriendIds(userId), getFriendIds(otherId));
+    }
+
+    /**
+     * Users two steps away, ranked by the number of contacts they share with the user, most first, ties by lower id.
+     * A user's contacts are the users they added and those whose request they confirmed; an unanswered request
+     * is not followed, and users already in contact either way are not suggested. At most
+     * {@value #MAX_SCANNED_CONTACTS} contacts of contacts are scanned, so users with thousands of friends are answered
+     * from the part of their neighbourhood reached first; of a single contact only the first
+     * {@value #MAX_SCANNED_PER_CONTACT} are taken, so one hub cannot use up the budget of the others.
+     */
+    public int[] suggestFriendIds(int userId, int limit) {
+        Map<Integer, Integer> mutualCounts = new HashMap<>();
+        int remaining = MAX_SCANNED_CONTACTS;
+        for (int contactId : getContactIds(userId)) {
+            if (remaining == 0) {
+                break;
+            }
+            int[] secondDegree = getContactIds(contactId);
+            int scanned = Math.min(secondDegree.length, Math.min(remaining, MAX_SCANNED_PER_CONTACT));
+            remaining -= scanned;
+            for (int idx = 0; idx < scanned; idx++) {
+                mutualCounts.merge(secondDegree[idx], 1, Integer::sum);
+            }
+        }
+        mutualCounts.remove(userId);
+        for (int knownId : SortedIntArrays.union(getFriendIds(userId),
+                requesters.getOrDefault(userId, SortedIntArrays.EMPTY))) {
+            mutualCounts.remove(knownId);
+        }
+        return mutualCounts.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    private int[] getContactIds(int userId) {
+        return SortedIntArrays.union(getFriendIds(userId),
+                confirmedRequesters.getOrDefault(userId, SortedIntArrays.EMPTY));
+    }
+
+    private static void invert(Map<Integer, int[]> idsByUser, Map<Integer, int[]> inverted) {
+        Map<Integer, IntStream.Builder> builders = new HashMap<>();
+        idsByUser.forEach((userId, ids) -> {
+            for (int id : ids) {
+                builders.computeIfAbsent(id, key -> IntStream.builder()).add(userId);
+            }
+        });
+        inverted.clear();
+        builders.forEach((id, userIds) -> inverted.put(id, SortedIntArrays.sortedDistinct(userIds.build().toArray())));
+    }
+
+    private static int[] add(int[] current, int id) {
+        return SortedIntArrays.add(current == null ? SortedIntArrays.EMPTY : current, id);
+    }
+
+    private static int[] remove(int[] current, int id) {
+        int[] updated = SortedIntArrays.remove(current, id);
+        return updated.length == 0 ? null : updated;
+    }
+}
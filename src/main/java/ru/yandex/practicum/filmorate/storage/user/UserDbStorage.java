@@ -1,21 +1,91 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.ExportSink;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Repository
+@Profile("!memory")
 public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate, RowMapper<User> mapper) {
-        super(jdbcTemplate, mapper);
+    // friends queries are package-visible so that UserQueryPlanTest checks their plans
+    static final String SELECT_FRIENDSHIP_STATUS = """
+            SELECT status
+            FROM friends
+            WHERE user_id = ?
+              AND friend_id = ?
+            """;
+    static final String EXISTS_FRIEND = "SELECT COUNT(*) FROM friends WHERE user_id=? AND friend_id=?";
+    static final String DELETE_FRIEND = """
+            DELETE FROM friends
+            WHERE  user_id = ? AND friend_id = ?""";
+    static final String SELECT_FRIENDS = """
+            SELECT u.*
+            FROM   users u
+                   INNER JOIN friends f
+                           ON u.id = f.friend_id
+            WHERE f.user_id = ?
+            """;
+
+    private final Set<Integer> knownUserIds = ConcurrentHashMap.newKeySet();
+    private final SocialGraphIndex socialGraphIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate, RowMapper<User> mapper, QueryMetrics queryMetrics,
+                         SocialGraphIndex socialGraphIndex, TransactionTemplate transactionTemplate) {
+        super(jdbcTemplate, mapper, queryMetrics);
+        this.socialGraphIndex = socialGraphIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotTemplate = snapshotTransaction(transactionTemplate);
+    }
+
+    /**
+     * Loads the known user ids and the friends graph from the tables.
+     */
+    @PostConstruct
+    public void loadIndexes() {
+        loadKnownUserIds();
+        loadSocialGraphIndex();
+    }
+
+    private void loadKnownUserIds() {
+        knownUserIds.addAll(timed("user.ids", () -> jdbcTemplate.queryForList("SELECT id FROM users", Integer.class)));
+    }
+
+    private void loadSocialGraphIndex() {
+        Map<Integer, int[]> friendIdsByUser = loadFriendIds("friend.loadAll", """
+                SELECT user_id, friend_id
+                FROM friends
+                ORDER BY user_id, friend_id
+                """);
+        Map<Integer, int[]> confirmedFriendIdsByUser = loadFriendIds("friend.loadConfirmed", """
+                SELECT user_id, friend_id
+                FROM friends
+                WHERE status = 'CONFIRMED'
+                ORDER BY user_id, friend_id
+                """);
+        socialGraphIndex.rebuild(friendIdsByUser, confirmedFriendIdsByUser);
     }
 
     @Override
@@ -23,11 +93,30 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         String query = """
                 INSERT INTO users (email, name, login, birthday)
                 VALUES (?, ?, ?, ?)""";
-        int id = insert(query, user.getEmail(), user.getName(), user.getLogin(), user.getBirthday());
+        int id = insert("user.insert", query, user.getEmail(), user.getName(), user.getLogin(), user.getBirthday());
         user.setId(id);
+        knownUserIds.add(id);
         return user;
     }
 
+    @Override
+    public List<User> addUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        String query = """
+                INSERT INTO users (email, name, login, birthday)
+                VALUES (?, ?, ?, ?)""";
+        int[] ids = transactionTemplate.execute(status -> insertBatch("user.bulkInsert", query, users.stream()
+                .map(user -> new Object[]{user.getEmail(), user.getName(), user.getLogin(), user.getBirthday()})
+                .toList()));
+        for (int idx = 0; idx < ids.length; idx++) {
+            users.get(idx).setId(ids[idx]);
+            knownUserIds.add(ids[idx]);
+        }
+        return users;
+    }
+
     @Override
     public User updateUser(User user) {
         String query = """
@@ -38,7 +127,7 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
                        birthday = ?
                 WHERE  id = ?""";
 
-        update(query, user.getEmail(), user.getName(), user.getLogin(), user.getBirthday(), user.getId());
+        update("user.update", query, user.getEmail(), user.getName(), user.getLogin(), user.getBirthday(), user.getId());
         return user;
     }
 
@@ -49,7 +138,7 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
                 FROM users
                 WHERE id = ?;
                 """;
-        return findOne(query, id);
+        return findOne("user.getById", query, id);
     }
 
     @Override
@@ -58,7 +147,33 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
                 SELECT *
                 FROM   users
                 """;
-        return findMany(query);
+        return findMany("user.getAll", query);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String query = """
+                SELECT *
+                FROM   users
+                WHERE  id = ANY(?)
+                ORDER BY id
+                """;
+        return findMany("user.getByIds", query, (Object) ids.toArray(Integer[]::new));
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        String query = """
+                SELECT *
+                FROM   users
+                WHERE  id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        return findMany("user.getPage", query, afterId, limit);
     }
 
     @Override
@@ -66,7 +181,8 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         String firstRequestForFriendship = """
                 INSERT INTO friends (user_id, friend_id, status)
                 VALUES (?, ?, ?)""";
-        insert(firstRequestForFriendship, userId, friendId, FriendshipStatus.PENDING.toString());
+        insert("friend.insert", firstRequestForFriendship, userId, friendId, FriendshipStatus.PENDING.toString());
+        socialGraphIndex.addFriend(userId, friendId);
     }
 
     @Override
@@ -75,27 +191,37 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
                 UPDATE friends
                 SET status = ? WHERE user_id = ? AND friend_id = ?
                 """;
-        insert(query, FriendshipStatus.CONFIRMED.toString(), userId, friendId);
+        insert("friend.confirm", query, FriendshipStatus.CONFIRMED.toString(), userId, friendId);
+        socialGraphIndex.confirmFriend(userId, friendId);
     }
 
     @Override
-    public void removeFriend(int userId, int friendId) {
+    public void addFriendships(List<Friendship> friendships) {
         String query = """
-                DELETE FROM friends
-                WHERE  user_id = ? AND friend_id = ?""";
-        delete(query, userId, friendId);
+                MERGE INTO friends (user_id, friend_id, status)
+                KEY (user_id, friend_id)
+                VALUES (?, ?, ?)""";
+        transactionTemplate.executeWithoutResult(status -> timed("friend.bulkMerge",
+                () -> jdbcTemplate.batchUpdate(query, friendships.stream()
+                        .map(friendship -> new Object[]{friendship.userId(), friendship.friendId(),
+                                friendship.status().toString()})
+                        .toList())));
+        friendships.forEach(friendship ->
+                socialGraphIndex.addFriend(friendship.userId(), friendship.friendId(), friendship.status()));
+    }
+
+    @Override
+    public void removeFriend(int userId, int friendId) {
+        if (delete("friend.delete", DELETE_FRIEND, userId, friendId)) {
+            socialGraphIndex.removeFriend(userId, friendId);
+        }
     }
 
     @Override
     public Optional<String> getFriendshipStatus(int userId, int friendId) {
-        String query = """
-                SELECT status
-                FROM friends
-                WHERE user_id = ?
-                  AND friend_id = ?
-                """;
         try {
-            return Optional.of(jdbcTemplate.queryForObject(query, String.class, userId, friendId));
+            return Optional.of(timed("friend.status",
+                    () -> jdbcTemplate.queryForObject(SELECT_FRIENDSHIP_STATUS, String.class, userId, friendId)));
         } catch (EmptyResultDataAccessException e) {
             return Optional.empty();
         }
@@ -103,27 +229,78 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     @Override
     public List<User> getFriends(int userId) {
-        String query = """
-                SELECT u.*
-                FROM   users u
-                       INNER JOIN friends f
-                               ON u.id = f.friend_id
-                WHERE f.user_id = ?
-                """;
-        return findMany(query, userId);
+        return findMany("friend.getAll", SELECT_FRIENDS, userId);
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        int[] commonFriendIds = socialGraphIndex.getCommonFriendIds(userId, otherId);
+        return getUsersByIds(Arrays.stream(commonFriendIds).boxed().toList());
+    }
+
+    @Override
+    public int[] getSuggestedFriendIds(int userId, int limit) {
+        return socialGraphIndex.suggestFriendIds(userId, limit);
     }
 
     @Override
     public boolean existsUserById(int id) {
+        if (knownUserIds.contains(id)) {
+            return true;
+        }
         String query = "SELECT COUNT(*) FROM users WHERE id=?";
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class, id);
-        return count != null && count > 0;
+        Integer count = timed("user.exists", () -> jdbcTemplate.queryForObject(query, Integer.class, id));
+        if (count != null && count > 0) {
+            knownUserIds.add(id);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public boolean existsFriendByIds(int userId, int friendId) {
-        String query = "SELECT COUNT(*) FROM friends WHERE user_id=? AND friend_id=?";
-        Integer count = jdbcTemplate.queryForObject(query, Integer.class, userId, friendId);
+        Integer count = timed("friend.exists",
+                () -> jdbcTemplate.queryForObject(EXISTS_FRIEND, Integer.class, userId, friendId));
         return count != null && count > 0;
     }
+
+    @Override
+    public void export(ExportSink sink) {
+        snapshotTemplate.executeWithoutResult(status -> {
+            exportTable("user.export", "users", """
+                    SELECT id, email, login, name, birthday
+                    FROM users
+                    ORDER BY id""", sink);
+            exportTable("friend.export", "friends", """
+                    SELECT user_id, friend_id, status
+                    FROM friends
+                    ORDER BY user_id, friend_id""", sink);
+        });
+    }
+
+    private Map<Integer, int[]> loadFriendIds(String name, String query) {
+        Map<Integer, int[]> friendIdsByUser = new HashMap<>();
+        timed(name, () -> jdbcTemplate.query(query, (ResultSetExtractor<Void>) rs -> {
+            int currentUserId = 0;
+            int[] friendIds = new int[16];
+            int size = 0;
+            while (rs.next()) {
+                int userId = rs.getInt("user_id");
+                if (size > 0 && userId != currentUserId) {
+                    friendIdsByUser.put(currentUserId, Arrays.copyOf(friendIds, size));
+                    size = 0;
+                }
+                currentUserId = userId;
+                if (size == friendIds.length) {
+                    friendIds = Arrays.copyOf(friendIds, size * 2);
+                }
+                friendIds[size++] = rs.getInt("friend_id");
+            }
+            if (size > 0) {
+                friendIdsByUser.put(currentUserId, Arrays.copyOf(friendIds, size));
+            }
+            return null;
+        }));
+        return friendIdsByUser;
+    }
 }
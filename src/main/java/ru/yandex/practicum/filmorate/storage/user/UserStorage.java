@@ -1,7 +1,9 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExportSink;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,23 +11,49 @@ public interface UserStorage {
 
     User addUser(User user);
 
+    /**
+     * Adds the users in one transaction, setting their ids.
+     */
+    List<User> addUsers(List<User> users);
+
     User updateUser(User user);
 
     Optional<User> getUserById(int id);
 
     List<User> getAllUsers();
 
+    List<User> getUsersByIds(Collection<Integer> ids);
+
+    List<User> getUsers(int afterId, int limit);
+
     void addFriend(int userId, int friendId);
 
     void confirmedFriend(int userId, int friendId);
 
+    /**
+     * Adds the friendships in one transaction; an existing friendship takes the given status.
+     */
+    void addFriendships(List<Friendship> friendships);
+
     Optional<String> getFriendshipStatus(int userId, int friendId);
 
     void removeFriend(int userId, int friendId);
 
     List<User> getFriends(int userId);
 
+    List<User> getCommonFriends(int userId, int otherId);
+
+    /**
+     * Ids of up to {@code limit} friends of friends of the user, most mutual friends first.
+     */
+    int[] getSuggestedFriendIds(int userId, int limit);
+
     boolean existsUserById(int id);
 
     boolean existsFriendByIds(int userId, int friendId);
+
+    /**
+     * Streams the users and friends tables to the sink, both taken from one consistent snapshot.
+     */
+    void export(ExportSink sink);
 }
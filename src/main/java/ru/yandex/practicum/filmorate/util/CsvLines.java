@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits one line of RFC 4180 CSV: comma-separated fields, optionally in double quotes with {@code ""} for a quote.
+ * Quoted fields cannot span lines.
+ */
+public final class CsvLines {
+
+    private CsvLines() {
+    }
+
+    public static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int idx = 0; idx < line.length(); idx++) {
+            char ch = line.charAt(idx);
+            if (quoted) {
+                if (ch != '"') {
+                    field.append(ch);
+                } else if (idx + 1 < line.length() && line.charAt(idx + 1) == '"') {
+                    field.append('"');
+                    idx++;
+                } else {
+                    quoted = false;
+                }
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append(ch);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
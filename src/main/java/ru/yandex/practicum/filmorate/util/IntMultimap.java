@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only int to ints multimap over primitive arrays, for dense keys such as table ids.
+ * Values of a key are stored contiguously (compressed rows) in insertion order, so lookups
+ * are two array reads and the whole map costs about one int per value plus one per key in the range.
+ */
+public final class IntMultimap {
+
+    private static final IntMultimap EMPTY = new IntMultimap(0, new int[]{0}, SortedIntArrays.EMPTY);
+
+    private final int minKey;
+    private final int[] offsets;
+    private final int[] values;
+
+    private IntMultimap(int minKey, int[] offsets, int[] values) {
+        this.minKey = minKey;
+        this.offsets = offsets;
+        this.values = values;
+    }
+
+    public int size(int key) {
+        int slot = key - minKey;
+        if (slot < 0 || slot >= offsets.length - 1) {
+            return 0;
+        }
+        return offsets[slot + 1] - offsets[slot];
+    }
+
+    public int[] get(int key) {
+        int slot = key - minKey;
+        if (slot < 0 || slot >= offsets.length - 1) {
+            return SortedIntArrays.EMPTY;
+        }
+        return Arrays.copyOfRange(values, offsets[slot], offsets[slot + 1]);
+    }
+
+    public void forEach(int key, IntConsumer action) {
+        int slot = key - minKey;
+        if (slot < 0 || slot >= offsets.length - 1) {
+            return;
+        }
+        for (int idx = offsets[slot]; idx < offsets[slot + 1]; idx++) {
+            action.accept(values[idx]);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private int[] keys = new int[16];
+        private int[] values = new int[16];
+        private int size;
+        private int minKey = Integer.MAX_VALUE;
+        private int maxKey = Integer.MIN_VALUE;
+
+        public Builder put(int key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+            minKey = Math.min(minKey, key);
+            maxKey = Math.max(maxKey, key);
+            return this;
+        }
+
+        /**
+         * Counting sort by key: O(entries + key range).
+         */
+        public IntMultimap build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int[] offsets = new int[maxKey - minKey + 2];
+            for (int idx = 0; idx < size; idx++) {
+                offsets[keys[idx] - minKey + 1]++;
+            }
+            for (int slot = 1; slot < offsets.length; slot++) {
+                offsets[slot] += offsets[slot - 1];
+            }
+            int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            int[] grouped = new int[size];
+            for (int idx = 0; idx < size; idx++) {
+                grouped[next[keys[idx] - minKey]++] = values[idx];
+            }
+            return new IntMultimap(minKey, offsets, grouped);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Operations on ascending, duplicate-free int arrays used as compact id sets.
+ * Arrays are never modified in place, so they can be shared between threads once published.
+ */
+public final class SortedIntArrays {
+
+    public static final int[] EMPTY = new int[0];
+
+    private SortedIntArrays() {
+    }
+
+    public static boolean contains(int[] values, int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public static int[] add(int[] values, int value) {
+        int idx = Arrays.binarySearch(values, value);
+        if (idx >= 0) {
+            return values;
+        }
+        int insertAt = -idx - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(values, insertAt, result, insertAt + 1, values.length - insertAt);
+        return result;
+    }
+
+    public static int[] remove(int[] values, int value) {
+        int idx = Arrays.binarySearch(values, value);
+        if (idx < 0) {
+            return values;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, idx);
+        System.arraycopy(values, idx + 1, result, idx, values.length - idx - 1);
+        return result;
+    }
+
+    public static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    public static int[] union(int[] left, int[] right) {
+        if (left.length == 0) {
+            return right;
+        }
+        if (right.length == 0) {
+            return left;
+        }
+        int[] result = new int[left.length + right.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length || j < right.length) {
+            if (j == right.length || i < left.length && left[i] < right[j]) {
+                result[size++] = left[i++];
+            } else if (i == left.length || left[i] > right[j]) {
+                result[size++] = right[j++];
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    public static int intersectionSize(int[] left, int[] right) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    public static int[] sortedDistinct(int[] values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int size = 1;
+        for (int idx = 1; idx < sorted.length; idx++) {
+            if (sorted[idx] != sorted[size - 1]) {
+                sorted[size++] = sorted[idx];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+}
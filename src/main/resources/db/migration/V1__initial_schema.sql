@@ -1,4 +1,4 @@
--- schema.sql
+-- V1: initial schema (formerly schema.sql)
 CREATE TABLE IF NOT EXISTS ratings
 (
     id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -1,4 +1,4 @@
--- data.sql
+-- V2: dictionaries (formerly data.sql)
 MERGE INTO ratings (id, name)
     VALUES (1, 'G'),
            (2, 'PG'),
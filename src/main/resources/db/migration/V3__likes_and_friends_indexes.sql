@@ -0,0 +1,23 @@
+-- V3: likes.film_id referenced users(id); rebuild the table with the right key,
+-- one like per (user_id, film_id) and indexes for both lookup directions.
+CREATE TABLE likes_v3
+(
+    id      INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users (id),
+    film_id INTEGER NOT NULL REFERENCES films (id),
+    CONSTRAINT likes_user_film_uq UNIQUE (user_id, film_id)
+);
+
+INSERT INTO likes_v3 (user_id, film_id)
+SELECT DISTINCT l.user_id, l.film_id
+FROM likes l
+WHERE EXISTS (SELECT 1 FROM films f WHERE f.id = l.film_id);
+
+DROP TABLE likes;
+ALTER TABLE likes_v3 RENAME TO likes;
+
+-- user-side lookups are served by likes_user_film_uq
+CREATE INDEX likes_film_user_idx ON likes (film_id, user_id);
+
+-- friends(user_id, friend_id) is already unique; reverse lookups need their own index
+CREATE INDEX friends_friend_idx ON friends (friend_id);
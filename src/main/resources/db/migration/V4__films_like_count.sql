@@ -0,0 +1,7 @@
+-- V4: denormalized like counter, changed in the same transaction as the likes rows
+ALTER TABLE films ADD COLUMN like_count INTEGER DEFAULT 0 NOT NULL;
+
+UPDATE films f
+SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id);
+
+CREATE INDEX films_like_count_idx ON films (like_count DESC, id);
@@ -0,0 +1,2 @@
+-- V5: edit counter of a film for optimistic concurrency, incremented by every update of the row
+ALTER TABLE films ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
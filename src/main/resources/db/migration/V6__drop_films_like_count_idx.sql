@@ -0,0 +1,3 @@
+-- V6: popular films are ranked by FilmPopularityIndex, which loads like_count with a full read of films;
+-- no query orders by like_count, so the index only slowed down every like and unlike
+DROP INDEX IF EXISTS films_like_count_idx;
@@ -1,28 +1,54 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.service.ExportService;
+import ru.yandex.practicum.filmorate.service.ImportFormat;
+import ru.yandex.practicum.filmorate.service.ImportReport;
+import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
 @AutoConfigureTestDatabase
+@AutoConfigureJson
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 @Import({FilmDbStorage.class, UserDbStorage.class})
 @ComponentScan
@@ -32,6 +58,18 @@ class FilmorateApplicationTests {
 
 	private final FilmDbStorage filmDbStorage;
 
+	private final GenreDbStorage genreDbStorage;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final ObjectMapper objectMapper;
+
+	private final BulkImportService bulkImportService;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final UserService userService;
+
 	@Test
 	void testFindAllUsers() {
 		User newUser = User.builder()
@@ -137,6 +175,9 @@ class FilmorateApplicationTests {
 		Film result = filmDbStorage.getFilmById(film.getId()).get();
 
 		assertThat(result).hasFieldOrPropertyWithValue("id", film.getId());
+		assertThat(result.getMpa()).hasFieldOrPropertyWithValue("name", "PG");
+		assertThat(result.getGenres()).extracting(Genre::getName).containsExactly("Драма");
+		assertThat(result.getLikes().isEmpty()).isTrue();
 	}
 
 	@Test
@@ -162,4 +203,280 @@ class FilmorateApplicationTests {
 
 		assertThat(films).hasSize(1);
 	}
-}
\ No newline at end of file
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void testGetAllFilmsMergesGenresAndLikesOutsideTransaction() {
+		// committed rows take the parallel loader path; they are deleted again to keep the other tests isolated
+		assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+		User user = userDbStorage.addUser(createUser("parallel"));
+		List<Film> films = new ArrayList<>();
+		for (int idx = 0; idx < 2500; idx++) {
+			Film film = createFilm("parallel " + idx);
+			if (idx % 2 == 1) {
+				film.getGenres().add(new Genre(5, null));
+			}
+			films.add(film);
+		}
+		filmDbStorage.addFilms(films);
+		int firstId = films.getFirst().getId();
+		int lastId = films.getLast().getId();
+		try {
+			for (int idx = 0; idx < films.size(); idx += 3) {
+				filmDbStorage.addLike(films.get(idx).getId(), user.getId());
+			}
+
+			List<Film> loaded = filmDbStorage.getAllFilms();
+
+			assertThat(loaded).hasSize(films.size());
+			for (int idx = 0; idx < loaded.size(); idx++) {
+				Film film = loaded.get(idx);
+				assertThat(film.getId()).isEqualTo(films.get(idx).getId());
+				assertThat(film.getGenres()).extracting(Genre::getId)
+						.containsExactlyElementsOf(idx % 2 == 1 ? List.of(2, 5) : List.of(2));
+				assertThat(film.getLikes()).isEqualTo(idx % 3 == 0 ? LikeSet.of(user.getId()) : LikeSet.empty());
+			}
+		} finally {
+			jdbcTemplate.update("DELETE FROM likes WHERE film_id BETWEEN ? AND ?", firstId, lastId);
+			jdbcTemplate.update("DELETE FROM film_genres WHERE film_id BETWEEN ? AND ?", firstId, lastId);
+			jdbcTemplate.update("DELETE FROM films WHERE id BETWEEN ? AND ?", firstId, lastId);
+			jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+		}
+	}
+
+	@Test
+	void testGetPopularFilms() {
+		Film first = filmDbStorage.addFilm(createFilm("first"));
+		Film second = filmDbStorage.addFilm(createFilm("second"));
+		User user = userDbStorage.addUser(createUser("fan"));
+
+		List<Film> popular = filmDbStorage.getPopularFilms(1);
+
+		assertThat(popular).hasSize(1);
+		assertThat(popular.get(0)).hasFieldOrPropertyWithValue("id", first.getId());
+		assertThat(popular.get(0).getGenres()).extracting(Genre::getId).containsExactly(2);
+
+		filmDbStorage.addLike(second.getId(), user.getId());
+		filmDbStorage.addLike(second.getId(), user.getId());
+		popular = filmDbStorage.getPopularFilms(2);
+
+		assertThat(popular).extracting(Film::getId).containsExactly(second.getId(), first.getId());
+		assertThat(popular.get(0).getLikes().toArray()).containsExactly(user.getId());
+		assertThat(popular.get(0).getLikeCount()).isEqualTo(1);
+
+		filmDbStorage.removeLike(second.getId(), user.getId());
+
+		assertThat(filmDbStorage.getPopularFilms(2)).extracting(Film::getId)
+				.containsExactly(first.getId(), second.getId());
+	}
+
+	@Test
+	void testLikesSerializedAsArray() throws Exception {
+		Film film = createFilm("liked");
+		film.setLikes(LikeSet.of(3, 1, 3));
+
+		String json = objectMapper.writeValueAsString(film);
+
+		assertThat(json).contains("\"likes\":[1,3]");
+		assertThat(objectMapper.readValue(json, Film.class).getLikes()).isEqualTo(LikeSet.of(1, 3));
+		assertThat(objectMapper.readValue("{\"likes\":null}", Film.class).getLikes().isEmpty()).isTrue();
+	}
+
+	@Test
+	void testReconcileLikeCounts() {
+		Film film = filmDbStorage.addFilm(createFilm("drifted"));
+		User user = userDbStorage.addUser(createUser("fan"));
+		filmDbStorage.addLike(film.getId(), user.getId());
+		jdbcTemplate.update("UPDATE films SET like_count = 5 WHERE id = ?", film.getId());
+
+		assertThat(filmDbStorage.reconcileLikeCounts()).isEqualTo(1);
+		assertThat(filmDbStorage.getFilmById(film.getId())).get()
+				.hasFieldOrPropertyWithValue("likeCount", 1);
+		assertThat(filmDbStorage.reconcileLikeCounts()).isZero();
+	}
+
+	@Test
+	void testFilmVersionsChangeOnWrites() {
+		Film film = filmDbStorage.addFilm(createFilm("versioned"));
+		User user = userDbStorage.addUser(createUser("voter"));
+		long filmVersion = filmDbStorage.getFilmVersion(film.getId());
+		long popularVersion = filmDbStorage.getPopularFilmsVersion();
+
+		filmDbStorage.addLike(film.getId(), user.getId());
+		assertThat(filmDbStorage.getFilmVersion(film.getId())).isGreaterThan(filmVersion);
+		assertThat(filmDbStorage.getPopularFilmsVersion()).isGreaterThan(popularVersion);
+
+		filmVersion = filmDbStorage.getFilmVersion(film.getId());
+		filmDbStorage.addLike(film.getId(), user.getId());
+		assertThat(filmDbStorage.getFilmVersion(film.getId())).isEqualTo(filmVersion);
+
+		film.setName("renamed");
+		filmDbStorage.updateFilm(film);
+		assertThat(filmDbStorage.getFilmVersion(film.getId())).isGreaterThan(filmVersion);
+	}
+
+	@Test
+	void testFindFilmsByIds() {
+		Film first = filmDbStorage.addFilm(createFilm("first"));
+		Film second = filmDbStorage.addFilm(createFilm("second"));
+
+		List<Film> films = filmDbStorage.getFilmsByIds(List.of(second.getId(), first.getId(), Integer.MAX_VALUE));
+
+		assertThat(films).extracting(Film::getId).containsExactly(second.getId(), first.getId());
+		assertThat(films.get(0).getGenres()).extracting(Genre::getName).containsExactly("Драма");
+		assertThat(films.get(0).getLikes().isEmpty()).isTrue();
+	}
+
+	@Test
+	void testFindFilmsPage() {
+		Film first = filmDbStorage.addFilm(createFilm("first"));
+		Film second = filmDbStorage.addFilm(createFilm("second"));
+		Film third = filmDbStorage.addFilm(createFilm("third"));
+
+		List<Film> page = filmDbStorage.getFilms(first.getId(), 1);
+
+		assertThat(page).extracting(Film::getId).containsExactly(second.getId());
+		assertThat(page.get(0).getGenres()).extracting(Genre::getId).containsExactly(2);
+		assertThat(filmDbStorage.getFilms(second.getId(), 10)).extracting(Film::getId)
+				.containsExactly(third.getId());
+	}
+
+	@Test
+	void testGenresServedFromDictionaryCache() {
+		assertThat(genreDbStorage.findAll()).extracting(Genre::getId).containsExactly(1, 2, 3, 4, 5, 6);
+		assertThat(genreDbStorage.getById(6)).get().hasFieldOrPropertyWithValue("name", "Боевик");
+		assertThat(genreDbStorage.existsGenresByIds(List.of(1, 2))).isTrue();
+		assertThat(genreDbStorage.existsGenresByIds(List.of(1, 99))).isFalse();
+	}
+
+	@Test
+	void testFindCommonFriends() {
+		User first = userDbStorage.addUser(createUser("first"));
+		User second = userDbStorage.addUser(createUser("second"));
+		User common = userDbStorage.addUser(createUser("common"));
+		User other = userDbStorage.addUser(createUser("other"));
+		userDbStorage.addFriend(first.getId(), common.getId());
+		userDbStorage.addFriend(first.getId(), other.getId());
+		userDbStorage.addFriend(second.getId(), common.getId());
+
+		assertThat(userDbStorage.getCommonFriends(first.getId(), second.getId()))
+				.extracting(User::getId)
+				.containsExactly(common.getId());
+
+		userDbStorage.removeFriend(second.getId(), common.getId());
+
+		assertThat(userDbStorage.getCommonFriends(first.getId(), second.getId())).isEmpty();
+	}
+
+	@Test
+	void testBulkImportReportsRowErrors() {
+		String films = """
+				name,description,releaseDate,duration,mpa,genres
+				"Кино, часть 1",first,1990-12-12,120,2,2|4|2
+				broken,second,1890-01-01,90,1,
+				other,"third ""quoted""\",2001-01-01,100,9,1
+				last,fourth,2002-02-02,80,1,
+				""";
+		ImportReport report = bulkImportService.importFilms(stream(films), ImportFormat.CSV);
+
+		assertThat(report.rows()).isEqualTo(4);
+		assertThat(report.imported()).isEqualTo(2);
+		assertThat(report.errors()).extracting(ImportReport.RowError::line).containsExactly(3, 4);
+		assertThat(filmDbStorage.getAllFilms()).extracting(Film::getName).containsExactly("Кино, часть 1", "last");
+		assertThat(filmDbStorage.getAllFilms().get(0).getGenres()).extracting(Genre::getId).containsExactly(2, 4);
+
+		String users = """
+				{"email":"a@mail.ru","login":"a","name":"a","birthday":"1990-12-12"}
+				{"email":"not an email","login":"b","name":"b","birthday":"1990-12-12"}
+				{"email":"c@mail.ru","login":"c","name":"c","birthday":"1990-12-12"
+				{"email":"d@mail.ru","login":"d","name":"d","birthday":"1990-12-12"}
+				""";
+		report = bulkImportService.importUsers(stream(users), ImportFormat.NDJSON);
+
+		assertThat(report.imported()).isEqualTo(2);
+		assertThat(report.errors()).extracting(ImportReport.RowError::line).containsExactly(2, 3);
+		List<User> imported = userDbStorage.getAllUsers();
+		int filmId = filmDbStorage.getAllFilms().get(0).getId();
+		int first = imported.get(0).getId();
+		int second = imported.get(1).getId();
+
+		String like = "{\"filmId\":" + filmId + ",\"userId\":" + first + "}\n";
+		report = bulkImportService.importLikes(stream(like + like
+				+ "{\"filmId\":" + filmId + ",\"userId\":" + Integer.MAX_VALUE + "}\n"), ImportFormat.NDJSON);
+		assertThat(report.imported()).isEqualTo(1);
+		assertThat(report.failed()).isEqualTo(1);
+		assertThat(filmDbStorage.existsLike(filmId, first)).isTrue();
+
+		report = bulkImportService.importFriendships(stream("userId,friendId,status\n"
+				+ first + "," + second + ",CONFIRMED\n" + second + "," + first + ",\n"), ImportFormat.CSV);
+		assertThat(report.imported()).isEqualTo(2);
+		assertThat(userDbStorage.getFriendshipStatus(first, second)).contains("CONFIRMED");
+		assertThat(userDbStorage.getFriendshipStatus(second, first)).contains("PENDING");
+	}
+
+	@Test
+	void testApiAndImportRejectTheSameUser() {
+		User noEmail = User.builder()
+				.login("nomail")
+				.name("nomail")
+				.birthday(LocalDate.of(1990, 12, 12))
+				.build();
+
+		assertThatThrownBy(() -> userService.addUser(noEmail)).hasMessage("Email must be valid");
+		ImportReport report = bulkImportService.importUsers(
+				stream("{\"login\":\"nomail\",\"name\":\"nomail\",\"birthday\":\"1990-12-12\"}\n"),
+				ImportFormat.NDJSON);
+		assertThat(report.errors()).extracting(ImportReport.RowError::message).containsExactly("Email must be valid");
+	}
+
+	@Test
+	void testExportToFileLeavesNoTemporaryFile(@TempDir Path directory) throws IOException {
+		Film film = filmDbStorage.addFilm(createFilm("exported"));
+		ExportService exportService = new ExportService(filmDbStorage, userDbStorage, objectMapper,
+				transactionTemplate, directory);
+
+		Path exported = exportService.exportToFile("dump.ndjson.gz");
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(Files.newInputStream(exported)), StandardCharsets.UTF_8))) {
+			assertThat(reader.lines()).anyMatch(line -> line.contains("\"id\":" + film.getId()));
+		}
+
+		Files.createDirectories(directory.resolve("taken").resolve("child"));
+		assertThatThrownBy(() -> exportService.exportToFile("taken")).isInstanceOf(IOException.class);
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files).extracting(Path::getFileName).extracting(Path::toString)
+					.containsExactlyInAnyOrder("dump.ndjson.gz", "taken");
+		}
+	}
+
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private User createUser(String login) {
+		return User.builder()
+				.email(login + "@mail.ru")
+				.login(login)
+				.name(login)
+				.birthday(LocalDate.of(1990, 12, 12))
+				.build();
+	}
+
+	private Film createFilm(String name) {
+		Mpa mpa = new Mpa();
+		mpa.setId(2);
+		Genre genre = new Genre();
+		genre.setId(2);
+		List<Genre> genres = new ArrayList<>();
+		genres.add(genre);
+		return Film.builder()
+				.mpa(mpa)
+				.genres(genres)
+				.name(name)
+				.description("testDescription")
+				.releaseDate(LocalDate.of(1990, 12, 12))
+				.duration(120)
+				.build();
+	}
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ETagsTest {
+
+	@Test
+	void testWildcardMatchesOnlyExistingResource() {
+		String etag = ETags.of("film-1", 3);
+
+		assertThat(ETags.matches("*", etag, () -> true)).isTrue();
+		assertThat(ETags.matches("*", etag, () -> false)).isFalse();
+		assertThat(ETags.matches("\"other\", W/" + etag, etag, () -> true)).isTrue();
+		assertThat(ETags.matches(etag, etag, () -> false)).isFalse();
+		assertThat(ETags.matches(ETags.of("film-1", 2), etag, () -> true)).isFalse();
+	}
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonResponseCacheTest {
+
+	private final JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), 32);
+
+	@Test
+	void testRendersOncePerVersion() {
+		AtomicInteger renders = new AtomicInteger();
+
+		byte[] first = cache.get("film-1", 1, () -> List.of(renders.incrementAndGet()));
+		byte[] second = cache.get("film-1", 1, () -> List.of(renders.incrementAndGet()));
+		byte[] changed = cache.get("film-1", 2, () -> List.of(renders.incrementAndGet()));
+
+		assertThat(new String(first, StandardCharsets.UTF_8)).isEqualTo("[1]");
+		assertThat(second).isSameAs(first);
+		assertThat(new String(changed, StandardCharsets.UTF_8)).isEqualTo("[2]");
+		assertThat(cache.get("film-1", 1, () -> List.of(renders.incrementAndGet()))).isNotEqualTo(changed);
+		assertThat(cache.get("film-1", 2, () -> "unused")).isEqualTo(changed);
+	}
+
+	@Test
+	void testEvictsLeastRecentlyUsedBeyondLimit() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		cache.bindTo(registry);
+
+		cache.get("a", 1, () -> "0123456789");
+		cache.get("b", 1, () -> "0123456789");
+		cache.get("a", 1, () -> "unused");
+		cache.get("c", 1, () -> "0123456789");
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.getTotalBytes()).isEqualTo(24);
+		assertThat(cache.get("a", 1, () -> "unused")).asString(StandardCharsets.UTF_8).isEqualTo("\"0123456789\"");
+		assertThat(registry.get("cache.evictions").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+	}
+}
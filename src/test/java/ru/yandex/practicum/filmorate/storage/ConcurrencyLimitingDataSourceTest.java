@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitingDataSourceTest {
+
+	private final ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(h2(), 1, 50);
+
+	@Test
+	void testWaitsForPermitAndTimesOut() throws Exception {
+		try (Connection ignored = dataSource.getConnection()) {
+			assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+		}
+		try (Connection connection = dataSource.getConnection()) {
+			assertThat(connection.isValid(1)).isTrue();
+		}
+	}
+
+	@Test
+	void testPermitReleasedOnlyOnce() throws Exception {
+		Connection connection = dataSource.getConnection();
+		connection.close();
+		connection.close();
+
+		assertThat(dataSource.getAvailablePermits()).isEqualTo(1);
+	}
+
+	@Test
+	void testGaugesBoundBeforeTheDataSourceIsWrapped() throws Exception {
+		DataSourceConcurrencyLimiter limiter = new DataSourceConcurrencyLimiter(2, 50);
+		MeterRegistry registry = new SimpleMeterRegistry();
+		limiter.bindTo(registry);
+		DataSource limited = (DataSource) limiter.postProcessAfterInitialization(h2(), "dataSource");
+
+		try (Connection ignored = limited.getConnection()) {
+			assertThat(registry.get("jdbc.limiter.available").gauge().value()).isEqualTo(1);
+			assertThat(registry.get("jdbc.limiter.waiting").gauge().value()).isZero();
+		}
+	}
+
+	private static JdbcDataSource h2() {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:limiter");
+		return h2;
+	}
+}
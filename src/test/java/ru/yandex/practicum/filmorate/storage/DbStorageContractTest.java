@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.storage;
+
+class DbStorageContractTest extends StorageContractTest {
+}
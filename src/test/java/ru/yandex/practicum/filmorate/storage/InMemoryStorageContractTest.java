@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmVersions;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.SocialGraphIndex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("memory")
+@DirtiesContext
+class InMemoryStorageContractTest extends StorageContractTest {
+
+	@TempDir
+	static Path directory;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private GenreDbStorage genreDbStorage;
+
+	@Autowired
+	private MpaDbStorage mpaDbStorage;
+
+	@DynamicPropertySource
+	static void memoryDirectory(DynamicPropertyRegistry registry) {
+		registry.add("filmorate.memory.directory", () -> directory.toString());
+	}
+
+	@Test
+	void testUsesInMemoryEngine() {
+		assertThat(filmStorage).isInstanceOf(InMemoryFilmStorage.class);
+		assertThat(userStorage).isInstanceOf(InMemoryUserStorage.class);
+	}
+
+	@Test
+	void testStateSurvivesRestart(@TempDir Path restartDirectory) throws IOException {
+		InMemoryFilmStorage films = newFilmStorage(restartDirectory);
+		InMemoryUserStorage users = newUserStorage(restartDirectory);
+		User user = users.addUser(createUser("durable"));
+		User friend = users.addUser(createUser("friend"));
+		users.addFriend(user.getId(), friend.getId());
+		Film film = films.addFilm(createFilm("durable"));
+		films.addLike(film.getId(), user.getId());
+		films.close();
+		users.close();
+
+		InMemoryFilmStorage restartedFilms = newFilmStorage(restartDirectory);
+		InMemoryUserStorage restartedUsers = newUserStorage(restartDirectory);
+
+		assertThat(restartedFilms.getFilmById(film.getId())).get()
+				.hasFieldOrPropertyWithValue("name", "durable")
+				.hasFieldOrPropertyWithValue("likeCount", 1);
+		assertThat(restartedFilms.getLikedFilmIds(user.getId())).containsExactly(film.getId());
+		assertThat(restartedUsers.getFriends(user.getId())).containsExactly(friend);
+		assertThat(restartedFilms.addFilm(createFilm("next")).getId()).isEqualTo(film.getId() + 1);
+		restartedFilms.close();
+		restartedUsers.close();
+	}
+
+	private InMemoryFilmStorage newFilmStorage(Path path) {
+		InMemoryFilmStorage storage = new InMemoryFilmStorage(path, false, objectMapper, genreDbStorage, mpaDbStorage,
+				new FilmPopularityIndex(), new FilmVersions(), new LikeIndex(), new FilmSearchIndex(),
+				new FilmFacetIndex());
+		storage.load();
+		return storage;
+	}
+
+	private InMemoryUserStorage newUserStorage(Path path) {
+		InMemoryUserStorage storage = new InMemoryUserStorage(path, false, objectMapper, new SocialGraphIndex());
+		storage.load();
+		return storage;
+	}
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JournalTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testReplaysSnapshotAndLaterChanges() throws IOException {
+		List<String> state = new ArrayList<>();
+		try (Journal<Names, String> journal = open()) {
+			journal.replay(names -> state.addAll(names.values()), state::add);
+			append(journal, state, "a");
+			append(journal, state, "b");
+			journal.writeSnapshot(journal.rollover(), new Names(List.copyOf(state)));
+			append(journal, state, "c");
+		}
+
+		List<String> restored = new ArrayList<>();
+		try (Journal<Names, String> journal = open()) {
+			journal.replay(names -> restored.addAll(names.values()), restored::add);
+		}
+
+		assertThat(restored).containsExactly("a", "b", "c");
+		try (var files = Files.list(directory)) {
+			assertThat(files.map(file -> file.getFileName().toString()))
+					.containsExactlyInAnyOrder("names.snapshot", "names-3.journal", "names-4.journal");
+		}
+	}
+
+	@Test
+	void testDiscardsIncompleteLastChange() throws IOException {
+		List<String> state = new ArrayList<>();
+		try (Journal<Names, String> journal = open()) {
+			journal.replay(names -> state.addAll(names.values()), state::add);
+			append(journal, state, "a");
+		}
+		Files.writeString(directory.resolve("names-1.journal"), "{\"seq\":2,\"cha",
+				StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+		List<String> restored = new ArrayList<>();
+		try (Journal<Names, String> journal = open()) {
+			journal.replay(names -> restored.addAll(names.values()), restored::add);
+			journal.append("b");
+		}
+		try (Journal<Names, String> journal = open()) {
+			restored.clear();
+			journal.replay(names -> restored.addAll(names.values()), restored::add);
+		}
+
+		assertThat(restored).containsExactly("a", "b");
+	}
+
+	@Test
+	void testFailedAppendLeavesNoTornLine() throws IOException {
+		List<String> state = new ArrayList<>();
+		AtomicBoolean failNextWrite = new AtomicBoolean();
+		try (Journal<Names, String> journal = new Journal<>(directory, "names", objectMapper, Names.class,
+				String.class, false) {
+			@Override
+			void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+				if (failNextWrite.getAndSet(false)) {
+					channel.write(buffer.slice(buffer.position(), buffer.remaining() / 2));
+					throw new IOException("No space left on device");
+				}
+				super.write(channel, buffer);
+			}
+		}) {
+			journal.replay(names -> state.addAll(names.values()), state::add);
+			append(journal, state, "a");
+			failNextWrite.set(true);
+			assertThatThrownBy(() -> journal.append("b")).isInstanceOf(UncheckedIOException.class);
+			append(journal, state, "c");
+		}
+
+		List<String> restored = new ArrayList<>();
+		try (Journal<Names, String> journal = open()) {
+			journal.replay(names -> restored.addAll(names.values()), restored::add);
+		}
+
+		assertThat(restored).containsExactly("a", "c");
+	}
+
+	private Journal<Names, String> open() {
+		return new Journal<>(directory, "names", objectMapper, Names.class, String.class, false);
+	}
+
+	private static void append(Journal<Names, String> journal, List<String> state, String change) {
+		journal.append(change);
+		state.add(change);
+	}
+
+	record Names(List<String> values) {
+	}
+}
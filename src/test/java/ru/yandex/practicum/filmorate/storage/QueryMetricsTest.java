@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryMetricsTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final QueryMetrics queryMetrics = new QueryMetrics(200);
+
+	@Test
+	void testRecordsTimeAndRowsPerQueryName() {
+		queryMetrics.bindTo(registry);
+
+		queryMetrics.record("film.getById", TimeUnit.MILLISECONDS.toNanos(2), 1);
+		queryMetrics.record("film.getAll", TimeUnit.MILLISECONDS.toNanos(30), 100);
+		queryMetrics.record("film.getAll", TimeUnit.MILLISECONDS.toNanos(10), -1);
+
+		assertThat(registry.get("db.query").tag("query", "film.getAll").timer().count()).isEqualTo(2);
+		assertThat(registry.get("db.query.rows").tag("query", "film.getAll").summary().totalAmount())
+				.isEqualTo(100);
+		assertThat(queryMetrics.getStats()).extracting(QueryMetrics.QueryStats::query)
+				.containsExactly("film.getAll", "film.getById");
+		assertThat(queryMetrics.getStats().get(0).totalMs()).isEqualTo(40.0);
+	}
+
+	@Test
+	void testNothingRecordedBeforeBinding() {
+		queryMetrics.record("film.getById", 1, 1);
+
+		assertThat(queryMetrics.getStats()).isEmpty();
+	}
+}
@@ -0,0 +1,352 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Behaviour every FilmStorage/UserStorage engine must share. Engines keep data between tests,
+ * so every test creates its own films and users and asserts only on them.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase
+@AutoConfigureJson
+@ComponentScan("ru.yandex.practicum.filmorate")
+abstract class StorageContractTest {
+
+	@Autowired
+	protected FilmStorage filmStorage;
+
+	@Autowired
+	protected UserStorage userStorage;
+
+	@Test
+	void testAddAndGetFilm() {
+		Film film = filmStorage.addFilm(createFilm("contract"));
+
+		Film found = filmStorage.getFilmById(film.getId()).orElseThrow();
+
+		assertThat(found.getName()).isEqualTo("contract");
+		assertThat(found.getDuration()).isEqualTo(120);
+		assertThat(found.getMpa()).isEqualTo(new Mpa(2, "PG"));
+		assertThat(found.getGenres()).containsExactly(new Genre(2, "Драма"), new Genre(4, "Триллер"));
+		assertThat(found.getLikes().isEmpty()).isTrue();
+		assertThat(filmStorage.existsFilmById(film.getId())).isTrue();
+		assertThat(filmStorage.getFilmById(Integer.MAX_VALUE)).isEmpty();
+	}
+
+	@Test
+	void testUpdateFilm() {
+		Film film = filmStorage.addFilm(createFilm("before"));
+		film.setName("after");
+		film.setMpa(new Mpa(3, null));
+
+		filmStorage.updateFilm(film);
+
+		Film found = filmStorage.getFilmById(film.getId()).orElseThrow();
+		assertThat(found.getName()).isEqualTo("after");
+		assertThat(found.getMpa()).isEqualTo(new Mpa(3, "PG-13"));
+	}
+
+	@Test
+	void testUpdateFilmReplacesGenresAndChecksVersion() {
+		Film film = filmStorage.addFilm(createFilm("versioned"));
+		assertThat(film.getVersion()).isZero();
+		Film stale = createFilm("stale");
+		stale.setId(film.getId());
+		stale.setVersion(film.getVersion());
+		film.setGenres(new ArrayList<>(List.of(new Genre(1, null), new Genre(2, null))));
+		film.setDuration(90);
+
+		filmStorage.updateFilm(film);
+
+		Film found = filmStorage.getFilmById(film.getId()).orElseThrow();
+		assertThat(found.getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+		assertThat(found.getDuration()).isEqualTo(90);
+		assertThat(found.getVersion()).isEqualTo(1);
+		assertThatThrownBy(() -> filmStorage.updateFilm(stale))
+				.isInstanceOf(OptimisticLockingFailureException.class);
+
+		User fan = userStorage.addUser(createUser("versioned fan"));
+		filmStorage.addLike(film.getId(), fan.getId());
+		stale.setVersion(null);
+		stale.setGenres(null);
+		Film updated = filmStorage.updateFilm(stale);
+
+		assertThat(updated.getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+		assertThat(updated.getLikeCount()).isEqualTo(1);
+		assertThat(updated.getVersion()).isEqualTo(2);
+		found = filmStorage.getFilmById(film.getId()).orElseThrow();
+		assertThat(found.getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+		assertThat(found.getDuration()).isEqualTo(120);
+		assertThat(found.getVersion()).isEqualTo(2);
+	}
+
+	@Test
+	void testFilmPagesAndLookups() {
+		Film first = filmStorage.addFilm(createFilm("first"));
+		Film second = filmStorage.addFilm(createFilm("second"));
+		Film third = filmStorage.addFilm(createFilm("third"));
+
+		assertThat(filmStorage.getFilms(first.getId(), 2)).extracting(Film::getId)
+				.containsExactly(second.getId(), third.getId());
+		assertThat(filmStorage.getFilmsByIds(List.of(third.getId(), Integer.MAX_VALUE, first.getId())))
+				.extracting(Film::getId)
+				.containsExactly(third.getId(), first.getId());
+		assertThat(filmStorage.getAllFilms()).extracting(Film::getId)
+				.containsSubsequence(first.getId(), second.getId(), third.getId());
+	}
+
+	@Test
+	void testLikesAndPopularity() {
+		Film liked = filmStorage.addFilm(createFilm("liked"));
+		Film mostLiked = filmStorage.addFilm(createFilm("most liked"));
+		User first = userStorage.addUser(createUser("first"));
+		User second = userStorage.addUser(createUser("second"));
+
+		filmStorage.addLike(liked.getId(), first.getId());
+		filmStorage.addLike(liked.getId(), first.getId());
+		filmStorage.addLike(mostLiked.getId(), first.getId());
+		filmStorage.addLike(mostLiked.getId(), second.getId());
+
+		Film found = filmStorage.getFilmById(liked.getId()).orElseThrow();
+		assertThat(found.getLikeCount()).isEqualTo(1);
+		assertThat(found.getLikes().contains(first.getId())).isTrue();
+		assertThat(filmStorage.existsLike(liked.getId(), first.getId())).isTrue();
+		assertThat(filmStorage.existsLike(liked.getId(), second.getId())).isFalse();
+		assertThat(filmStorage.getPopularFilms(Integer.MAX_VALUE)).extracting(Film::getId)
+				.containsSubsequence(mostLiked.getId(), liked.getId());
+
+		filmStorage.removeLike(mostLiked.getId(), first.getId());
+		filmStorage.removeLike(mostLiked.getId(), second.getId());
+
+		assertThat(filmStorage.existsLike(mostLiked.getId(), first.getId())).isFalse();
+		assertThat(filmStorage.getFilmById(mostLiked.getId()).orElseThrow().getLikeCount()).isZero();
+		assertThat(filmStorage.getPopularFilms(Integer.MAX_VALUE)).extracting(Film::getId)
+				.containsSubsequence(liked.getId(), mostLiked.getId());
+	}
+
+	@Test
+	void testAddAndUpdateUsers() {
+		User first = userStorage.addUser(createUser("first"));
+		User second = userStorage.addUser(createUser("second"));
+		second.setName("renamed");
+
+		userStorage.updateUser(second);
+
+		assertThat(userStorage.getUserById(second.getId())).contains(second);
+		assertThat(userStorage.existsUserById(first.getId())).isTrue();
+		assertThat(userStorage.existsUserById(Integer.MAX_VALUE)).isFalse();
+		assertThat(userStorage.getUsersByIds(List.of(second.getId(), first.getId(), Integer.MAX_VALUE)))
+				.containsExactly(first, second);
+		assertThat(userStorage.getUsers(first.getId(), 1)).containsExactly(second);
+		assertThat(userStorage.getAllUsers()).contains(first, second);
+	}
+
+	@Test
+	void testFriendships() {
+		User user = userStorage.addUser(createUser("user"));
+		User friend = userStorage.addUser(createUser("friend"));
+		User other = userStorage.addUser(createUser("other"));
+
+		userStorage.addFriend(user.getId(), friend.getId());
+		userStorage.addFriend(other.getId(), friend.getId());
+
+		assertThat(userStorage.getFriendshipStatus(user.getId(), friend.getId())).contains("PENDING");
+		assertThat(userStorage.getFriendshipStatus(friend.getId(), user.getId())).isEmpty();
+		assertThat(userStorage.existsFriendByIds(user.getId(), friend.getId())).isTrue();
+		assertThat(userStorage.getFriends(user.getId())).containsExactly(friend);
+		assertThat(userStorage.getCommonFriends(user.getId(), other.getId())).containsExactly(friend);
+		assertThatThrownBy(() -> userStorage.addFriend(user.getId(), friend.getId()))
+				.isInstanceOf(DuplicateKeyException.class);
+
+		userStorage.confirmedFriend(user.getId(), friend.getId());
+		assertThat(userStorage.getFriendshipStatus(user.getId(), friend.getId())).contains("CONFIRMED");
+
+		userStorage.removeFriend(user.getId(), friend.getId());
+		assertThat(userStorage.getFriends(user.getId())).isEmpty();
+		assertThat(userStorage.existsFriendByIds(user.getId(), friend.getId())).isFalse();
+	}
+
+	@Test
+	void testRecommendedFilms() {
+		User user = userStorage.addUser(createUser("taste"));
+		User close = userStorage.addUser(createUser("close"));
+		User distant = userStorage.addUser(createUser("distant"));
+		Film shared = filmStorage.addFilm(createFilm("shared"));
+		Film common = filmStorage.addFilm(createFilm("common"));
+		Film closeFavourite = filmStorage.addFilm(createFilm("closeFavourite"));
+		Film distantFavourite = filmStorage.addFilm(createFilm("distantFavourite"));
+		filmStorage.addLike(shared.getId(), user.getId());
+		filmStorage.addLike(common.getId(), user.getId());
+		filmStorage.addLike(shared.getId(), close.getId());
+		filmStorage.addLike(common.getId(), close.getId());
+		filmStorage.addLike(closeFavourite.getId(), close.getId());
+		filmStorage.addLike(shared.getId(), distant.getId());
+		filmStorage.addLike(distantFavourite.getId(), distant.getId());
+
+		assertThat(filmStorage.getRecommendedFilmIds(user.getId(), 10))
+				.containsExactly(closeFavourite.getId(), distantFavourite.getId());
+		assertThat(filmStorage.getRecommendedFilmIds(user.getId(), 1)).containsExactly(closeFavourite.getId());
+
+		filmStorage.removeLike(closeFavourite.getId(), close.getId());
+
+		assertThat(filmStorage.getRecommendedFilmIds(user.getId(), 10)).containsExactly(distantFavourite.getId());
+	}
+
+	@Test
+	void testSuggestedFriends() {
+		User user = userStorage.addUser(createUser("suggested"));
+		User first = userStorage.addUser(createUser("first"));
+		User second = userStorage.addUser(createUser("second"));
+		User common = userStorage.addUser(createUser("common"));
+		User single = userStorage.addUser(createUser("single"));
+		User requester = userStorage.addUser(createUser("requester"));
+		User follower = userStorage.addUser(createUser("follower"));
+		userStorage.addFriend(user.getId(), first.getId());
+		userStorage.addFriend(user.getId(), second.getId());
+		userStorage.addFriend(first.getId(), common.getId());
+		userStorage.addFriend(second.getId(), common.getId());
+		userStorage.addFriend(first.getId(), single.getId());
+		userStorage.addFriend(first.getId(), second.getId());
+		userStorage.addFriend(requester.getId(), first.getId());
+		userStorage.addFriend(first.getId(), follower.getId());
+		userStorage.addFriend(follower.getId(), user.getId());
+
+		assertThat(userStorage.getSuggestedFriendIds(user.getId(), 10))
+				.containsExactly(common.getId(), single.getId());
+
+		userStorage.confirmedFriend(requester.getId(), first.getId());
+
+		assertThat(userStorage.getSuggestedFriendIds(user.getId(), 10))
+				.containsExactly(common.getId(), single.getId(), requester.getId());
+		assertThat(userStorage.getSuggestedFriendIds(user.getId(), 1)).containsExactly(common.getId());
+	}
+
+	@Test
+	void testSearchFilms() {
+		Film film = createFilm("Поиск сокровищ");
+		film.setDescription("Pirates and treasure");
+		film = filmStorage.addFilm(film);
+
+		assertThat(filmStorage.searchFilmIds("сокров", 10)).contains(film.getId());
+		assertThat(filmStorage.searchFilmIds("pirates", 10)).contains(film.getId());
+
+		film.setName("Остров");
+		filmStorage.updateFilm(film);
+
+		assertThat(filmStorage.searchFilmIds("сокровищ", 10)).doesNotContain(film.getId());
+		assertThat(filmStorage.searchFilmIds("остров", 10)).contains(film.getId());
+	}
+
+	@Test
+	void testFindFilmsByFacets() {
+		Film drama = createFilm("facet drama");
+		drama.setReleaseDate(LocalDate.of(1901, 5, 1));
+		drama = filmStorage.addFilm(drama);
+		Film comedy = createFilm("facet comedy");
+		comedy.setGenres(new ArrayList<>(List.of(new Genre(1, null))));
+		comedy.setReleaseDate(LocalDate.of(1902, 5, 1));
+		comedy = filmStorage.addFilm(comedy);
+		Film rated = createFilm("facet rated");
+		rated.setMpa(new Mpa(5, null));
+		rated.setReleaseDate(LocalDate.of(1902, 6, 1));
+		rated = filmStorage.addFilm(rated);
+		User user = userStorage.addUser(createUser("facets"));
+		filmStorage.addLike(comedy.getId(), user.getId());
+
+		assertThat(filmStorage.findFilms(new FilmFilter(null, null, 1901, 1902, null), 0, 10))
+				.extracting(Film::getId)
+				.containsExactly(drama.getId(), comedy.getId(), rated.getId());
+		assertThat(filmStorage.findFilms(new FilmFilter(null, null, 1901, 1902, null), drama.getId(), 1))
+				.extracting(Film::getId)
+				.containsExactly(comedy.getId());
+		assertThat(filmStorage.findFilms(new FilmFilter(List.of(2), List.of(2), 1901, 1902, null), 0, 10))
+				.extracting(Film::getId)
+				.containsExactly(drama.getId());
+		assertThat(filmStorage.findFilms(new FilmFilter(List.of(1, 4), null, 1902, 1902, FilmFilter.Sort.POPULAR),
+				0, 10))
+				.extracting(Film::getId)
+				.containsExactly(comedy.getId(), rated.getId());
+
+		rated.setMpa(new Mpa(1, null));
+		filmStorage.updateFilm(rated);
+
+		assertThat(filmStorage.findFilms(new FilmFilter(null, List.of(5), 1901, 1902, null), 0, 10)).isEmpty();
+		assertThat(filmStorage.findFilms(new FilmFilter(List.of(4), List.of(1), 1902, 1902, null), 0, 10))
+				.extracting(Film::getId)
+				.containsExactly(rated.getId());
+	}
+
+	@Test
+	void testExportStreamsEveryTable() {
+		Film film = filmStorage.addFilm(createFilm("exported"));
+		User user = userStorage.addUser(createUser("exporter"));
+		User friend = userStorage.addUser(createUser("exportee"));
+		filmStorage.addLike(film.getId(), user.getId());
+		userStorage.addFriend(user.getId(), friend.getId());
+		List<String> rows = new ArrayList<>();
+		ExportSink sink = (table, columns, values) -> {
+			StringBuilder row = new StringBuilder(table);
+			for (int idx = 0; idx < columns.length; idx++) {
+				row.append(' ').append(columns[idx]).append('=').append(values[idx]);
+			}
+			rows.add(row.toString());
+		};
+
+		filmStorage.export(sink);
+		userStorage.export(sink);
+
+		assertThat(rows).contains(
+				"films id=" + film.getId() + " name=exported description=testDescription release_date=1990-12-12"
+						+ " duration=120 rating_id=2",
+				"film_genres film_id=" + film.getId() + " genre_id=2",
+				"film_genres film_id=" + film.getId() + " genre_id=4",
+				"likes user_id=" + user.getId() + " film_id=" + film.getId(),
+				"users id=" + user.getId() + " email=exporter@mail.ru login=exporter name=exporter"
+						+ " birthday=1990-12-12",
+				"friends user_id=" + user.getId() + " friend_id=" + friend.getId() + " status=PENDING");
+	}
+
+	protected static User createUser(String login) {
+		return User.builder()
+				.email(login + "@mail.ru")
+				.login(login)
+				.name(login)
+				.birthday(LocalDate.of(1990, 12, 12))
+				.build();
+	}
+
+	protected static Film createFilm(String name) {
+		List<Genre> genres = new ArrayList<>();
+		genres.add(new Genre(4, null));
+		genres.add(new Genre(2, null));
+		return Film.builder()
+				.mpa(new Mpa(2, null))
+				.genres(genres)
+				.name(name)
+				.description("testDescription")
+				.releaseDate(LocalDate.of(1990, 12, 12))
+				.duration(120)
+				.build();
+	}
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmPopularityIndexTest {
+
+	private final FilmPopularityIndex index = new FilmPopularityIndex();
+
+	@Test
+	void testTopOrderedByLikesThenId() {
+		index.rebuild(Map.of(1, 0, 2, 5, 3, 5, 4, 1));
+
+		assertThat(index.getTop(3)).containsExactly(2, 3, 4);
+	}
+
+	@Test
+	void testTopAmongSelectedFilms() {
+		index.rebuild(Map.of(1, 0, 2, 5, 3, 5, 4, 1, 5, 9));
+		BitSet dense = new BitSet();
+		dense.set(1, 5);
+		BitSet sparse = new BitSet();
+		sparse.set(1);
+		sparse.set(4);
+
+		assertThat(index.getTop(2, dense)).containsExactly(2, 3);
+		assertThat(index.getTop(3, sparse)).containsExactly(4, 1);
+	}
+
+	@Test
+	void testLikeChangesReorderFilms() {
+		index.addFilm(1);
+		index.addFilm(2);
+
+		index.incrementLikes(2);
+		assertThat(index.getTop(2)).containsExactly(2, 1);
+
+		index.decrementLikes(2);
+		assertThat(index.getTop(2)).containsExactly(1, 2);
+	}
+
+	@Test
+	void testConcurrentLikesAreNotLost() throws InterruptedException {
+		index.addFilm(1);
+		index.addFilm(2);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 10_000; i++) {
+			executor.execute(() -> index.incrementLikes(1));
+			executor.execute(() -> {
+				index.incrementLikes(2);
+				index.decrementLikes(2);
+			});
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(index.getLikeCount(1)).isEqualTo(10_000);
+		assertThat(index.getLikeCount(2)).isZero();
+		assertThat(index.getTop(Integer.MAX_VALUE)).containsExactly(1, 2);
+	}
+}
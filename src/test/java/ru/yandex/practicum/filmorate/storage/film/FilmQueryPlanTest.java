@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The like statements of FilmDbStorage must be answered from an index; H2 marks a full scan as
+ * {@code TABLE.tableScan} in the plan.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+class FilmQueryPlanTest {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	@Test
+	void testLikeLookupUsesIndex() {
+		assertNoLikesScan(FilmDbStorage.EXISTS_LIKE, 1, 1);
+		assertNoLikesScan(FilmDbStorage.INSERT_LIKE_IF_ABSENT, 1, 1, 1, 1);
+		assertNoLikesScan(FilmDbStorage.DELETE_LIKE, 1, 1);
+	}
+
+	@Test
+	void testFilmLikesUseIndex() {
+		assertNoLikesScan(FilmDbStorage.SELECT_LIKES_BY_FILM_IDS, (Object) new Integer[]{1, 2});
+		assertNoLikesScan(FilmDbStorage.SELECT_LIKE_COUNT_DRIFT);
+	}
+
+	private void assertNoLikesScan(String query, Object... params) {
+		String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class, params);
+		assertThat(plan).as(plan).doesNotContain("PUBLIC.LIKES.tableScan");
+	}
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSearchIndexTest {
+
+	private final FilmSearchIndex index = new FilmSearchIndex();
+
+	@Test
+	void testTokenizesCyrillicAndLatin() {
+		assertThat(FilmSearchIndex.tokenize("Ёлки-2: Новый Year, 3D!"))
+				.containsExactly("елки", "2", "новый", "year", "3d");
+	}
+
+	@Test
+	void testRanksNameMatchesAboveDescriptionMatches() {
+		index.rebuild(List.of(
+				new FilmSearchIndex.FilmText(1, "Комедия положений", "Драма о семье"),
+				new FilmSearchIndex.FilmText(2, "Драма", "Очень смешная комедия"),
+				new FilmSearchIndex.FilmText(3, "Terminator", null)));
+
+		assertThat(index.search("драма", 10)).containsExactly(2, 1);
+		assertThat(index.search("комедия", 10)).containsExactly(1, 2);
+		assertThat(index.search("TERMIN", 10)).containsExactly(3);
+		assertThat(index.search("драма семье", 10)).containsExactly(1);
+		assertThat(index.search("драма", 1)).containsExactly(2);
+		assertThat(index.search("мюзикл", 10)).isEmpty();
+	}
+
+	@Test
+	void testExactMatchRanksAbovePrefix() {
+		index.indexFilm(1, "Коты", null);
+		index.indexFilm(2, "Кот", null);
+
+		assertThat(index.search("кот", 10)).containsExactly(2, 1);
+	}
+
+	@Test
+	void testUpdateReplacesPreviousText() {
+		index.indexFilm(1, "Старое название", null);
+
+		index.indexFilm(1, "Новое название", null);
+
+		assertThat(index.search("старое", 10)).isEmpty();
+		assertThat(index.search("новое", 10)).containsExactly(1);
+		assertThat(index.search("название", 10)).containsExactly(1);
+	}
+
+	@Test
+	void testReplacedTermsDoNotHidePrefixMatches() {
+		for (int id = 1; id <= 300; id++) {
+			index.indexFilm(id, "aaa" + id, null);
+			index.indexFilm(id, "renamed", null);
+		}
+		index.indexFilm(301, "aaazzz", null);
+
+		assertThat(index.search("aaa", 10)).containsExactly(301);
+	}
+}
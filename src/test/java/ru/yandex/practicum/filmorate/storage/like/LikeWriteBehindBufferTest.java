@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LikeWriteBehindBufferTest {
+
+	private final List<List<LikeChange>> batches = new CopyOnWriteArrayList<>();
+
+	private final LikeWriteBehindBuffer buffer = new LikeWriteBehindBuffer(true, 2, 60_000, 3, 10);
+
+	@AfterEach
+	void tearDown() {
+		buffer.shutdown();
+	}
+
+	@Test
+	void testLatestChangePerPairWins() {
+		buffer.start(batches::add);
+
+		buffer.enqueue(new LikeChange(1, 1, true));
+		buffer.enqueue(new LikeChange(1, 1, false));
+		assertThat(buffer.getPendingLike(1, 1)).contains(false);
+
+		buffer.flush();
+
+		assertThat(batches).containsExactly(List.of(new LikeChange(1, 1, false)));
+		assertThat(buffer.getPendingLike(1, 1)).isEmpty();
+	}
+
+	@Test
+	void testFullQueueRejectsChanges() {
+		buffer.start(changes -> {
+			throw new IllegalStateException("database is down");
+		});
+
+		buffer.enqueue(new LikeChange(1, 1, true));
+		buffer.enqueue(new LikeChange(1, 2, true));
+		buffer.enqueue(new LikeChange(1, 3, true));
+
+		assertThatThrownBy(() -> buffer.enqueue(new LikeChange(1, 4, true)))
+				.isInstanceOf(RejectedExecutionException.class);
+		buffer.enqueue(new LikeChange(1, 3, false));
+	}
+
+	@Test
+	void testRejectedChangeDoesNotBlockOthers() {
+		buffer.start(changes -> {
+			if (changes.contains(new LikeChange(9, 1, true))) {
+				throw new DataIntegrityViolationException("film 9 was deleted");
+			}
+			batches.add(changes);
+		});
+		buffer.enqueue(new LikeChange(1, 1, true));
+		buffer.enqueue(new LikeChange(9, 1, true));
+
+		buffer.flush();
+
+		assertThat(batches).containsExactly(List.of(new LikeChange(1, 1, true)));
+		assertThat(buffer.getPendingLike(9, 1)).isEmpty();
+		buffer.enqueue(new LikeChange(1, 2, true));
+		buffer.enqueue(new LikeChange(1, 3, true));
+		buffer.enqueue(new LikeChange(1, 4, true));
+	}
+
+	@Test
+	void testShutdownFlushesPendingChanges() {
+		buffer.start(batches::add);
+		buffer.enqueue(new LikeChange(2, 1, true));
+
+		buffer.shutdown();
+
+		assertThat(batches).containsExactly(List.of(new LikeChange(2, 1, true)));
+	}
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SocialGraphIndexTest {
+
+	private final SocialGraphIndex index = new SocialGraphIndex();
+
+	@Test
+	void testHubContactDoesNotHideOtherSuggestions() {
+		int[] hubFriends = IntStream.range(1_000, 251_000).toArray();
+		index.rebuild(Map.of(1, new int[]{2, 3}, 2, hubFriends, 3, new int[]{4}), Map.of());
+
+		assertThat(index.suggestFriendIds(1, 20_000)).contains(4, 1_000);
+	}
+}
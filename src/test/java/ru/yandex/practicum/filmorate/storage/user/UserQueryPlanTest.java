@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The friends statements of UserDbStorage must not scan the whole friends table.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+class UserQueryPlanTest {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	@Test
+	void testFriendLookupUsesIndex() {
+		assertNoFriendsScan(UserDbStorage.SELECT_FRIENDSHIP_STATUS, 1, 2);
+		assertNoFriendsScan(UserDbStorage.EXISTS_FRIEND, 1, 2);
+		assertNoFriendsScan(UserDbStorage.DELETE_FRIEND, 1, 2);
+		assertNoFriendsScan(UserDbStorage.SELECT_FRIENDS, 1);
+	}
+
+	private void assertNoFriendsScan(String query, Object... params) {
+		String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class, params);
+		assertThat(plan).as(plan).doesNotContain("PUBLIC.FRIENDS.tableScan");
+	}
+}